@@ -0,0 +1,59 @@
+package com.photoselect.benchmark;
+
+import com.photoselect.PhotoSelectorApplication;
+import com.photoselect.service.BurstService;
+import com.photoselect.service.PhotoService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boots the real application context (without a web server) against a {@link PhotoTree}, so
+ * benchmarks measure the services as they are wired in production.
+ */
+final class BenchmarkApp {
+    private static final long QUIET_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private BenchmarkApp() {
+    }
+
+    static ConfigurableApplicationContext start(PhotoTree tree, String... extraArgs) throws InterruptedException {
+        List<String> args = new ArrayList<>();
+        args.add("--photos.source=" + tree.source);
+        args.add("--photos.dest=" + tree.selected);
+        tree.categories.forEach((name, dir) -> args.add("--photos.categories." + name + "=" + dir));
+        args.add("--photos.catalog.snapshot-file=" + tree.stateDir().resolve("catalog.bin"));
+        args.add("--photos.metadata.cache-file=" + tree.stateDir().resolve("metadata.bin"));
+        args.add("--photos.copy.queue-file=" + tree.stateDir().resolve("copy-queue.log"));
+        args.add("--photos.rendition.cache-dir=" + tree.stateDir().resolve("renditions"));
+        args.add("--photos.catalog.rescan-interval-seconds=0");
+        args.add("--spring.main.banner-mode=off");
+        args.add("--logging.level.com.photoselect=WARN");
+        args.addAll(List.of(extraArgs));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PhotoSelectorApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+        awaitBackgroundWork(context);
+        return context;
+    }
+
+    // Metadata indexing and burst hashing run right after startup; measuring next to them would be noise
+    private static void awaitBackgroundWork(ConfigurableApplicationContext context) throws InterruptedException {
+        int photos = context.getBean(PhotoService.class).getSourcePhotos().size();
+        BurstService bursts = context.getBean(BurstService.class);
+        long deadline = System.currentTimeMillis() + QUIET_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> status = bursts.getStatus();
+            if ((int) status.get("hashed") + (int) status.get("failed") >= photos) {
+                return;
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("Background indexing did not finish within " + QUIET_TIMEOUT_MILLIS + " ms");
+    }
+}
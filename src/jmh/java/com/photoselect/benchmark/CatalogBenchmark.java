@@ -0,0 +1,45 @@
+package com.photoselect.benchmark;
+
+import com.photoselect.service.PhotoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-listing the source tree, as the periodic rescan and the folder watcher do.
+ * Nothing changes between invocations, so this is the incremental path: one mtime check per
+ * folder plus building and sorting the photo list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int photos;
+
+    private PhotoTree tree;
+    private ConfigurableApplicationContext context;
+    private PhotoService photoService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        tree = PhotoTree.create(photos, 1024);
+        context = BenchmarkApp.start(tree);
+        photoService = context.getBean(PhotoService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        tree.close();
+    }
+
+    @Benchmark
+    public List<String> getAllSourcePhotos() {
+        return photoService.getAllSourcePhotos();
+    }
+}
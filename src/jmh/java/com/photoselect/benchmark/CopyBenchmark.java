@@ -0,0 +1,95 @@
+package com.photoselect.benchmark;
+
+import com.photoselect.service.CatalogSnapshot;
+import com.photoselect.service.CopyEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Copying 1,000 photos into an empty destination, one after another as the request thread used
+ * to, and through the copy engine (queue log fsync'd per batch, a few copies per destination at
+ * once) until its queue has drained.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CopyBenchmark {
+    private static final int PHOTOS = 1000;
+
+    @Param({"65536", "1048576"})
+    public int bytesPerPhoto;
+
+    private PhotoTree tree;
+    private ConfigurableApplicationContext context;
+    private CopyEngine copyEngine;
+    private File[] sources;
+    private String[] targets;
+    private Path destination;
+    private int run;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        tree = PhotoTree.create(PHOTOS, bytesPerPhoto);
+        context = BenchmarkApp.start(tree);
+        copyEngine = context.getBean(CopyEngine.class);
+        sources = new File[PHOTOS];
+        targets = new String[PHOTOS];
+        for (int i = 0; i < PHOTOS; i++) {
+            sources[i] = tree.source.resolve(tree.photos.get(i)).toFile();
+            targets[i] = CatalogSnapshot.destinationName(tree.photos.get(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        tree.close();
+    }
+
+    // Every copy lands in a folder of its own, so nothing is skipped as already present
+    @Setup(Level.Invocation)
+    public void emptyDestination() throws IOException {
+        destination = Files.createDirectories(tree.root.resolve("copies-" + run++));
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeDestination() throws IOException {
+        try (Stream<Path> paths = Files.walk(destination)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public void synchronous() throws IOException {
+        for (int i = 0; i < PHOTOS; i++) {
+            FileCopyUtils.copy(sources[i], destination.resolve(targets[i]).toFile());
+        }
+    }
+
+    @Benchmark
+    public void queued() throws InterruptedException {
+        String dir = destination.toString();
+        for (int i = 0; i < PHOTOS; i++) {
+            copyEngine.submit(sources[i], dir, targets[i], "benchmark");
+        }
+        if (!copyEngine.awaitIdle(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Copy queue did not drain");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.photoselect.benchmark;
+
+import com.photoselect.controller.PhotoController;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving originals through {@code getImage}, walking forward through the catalog as a
+ * reviewer does. With prefetch on, neighbours are read ahead and most requests are answered
+ * from memory; with it off every request reads the file. The "bytes" counter is the
+ * throughput that matters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ImageBenchmark {
+    private static final int PHOTOS = 256;
+
+    @Param({"524288", "8388608"})
+    public int photoBytes;
+
+    @Param({"true", "false"})
+    public boolean prefetch;
+
+    private PhotoTree tree;
+    private ConfigurableApplicationContext context;
+    private PhotoController photoController;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Transferred {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        tree = PhotoTree.create(PHOTOS, photoBytes);
+        context = prefetch
+                ? BenchmarkApp.start(tree)
+                : BenchmarkApp.start(tree, "--photos.prefetch.ahead=0", "--photos.prefetch.behind=0");
+        photoController = context.getBean(PhotoController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        tree.close();
+    }
+
+    @Benchmark
+    public int getImage(Cursor cursor, Transferred transferred) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/image");
+        CountingResponse response = new CountingResponse();
+        photoController.getImage(cursor.next++ % PHOTOS, null, null, new ServletWebRequest(request, response),
+                request, response);
+        transferred.bytes += response.bytes;
+        return response.getStatus();
+    }
+
+    // Discards the body instead of buffering it, so the copy into the mock is not what gets measured
+    private static final class CountingResponse extends MockHttpServletResponse {
+        long bytes;
+
+        private final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes += len;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.photoselect.benchmark;
+
+import com.photoselect.controller.PhotoController;
+import com.photoselect.service.PhotoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-keypress lookups (counts and "is this photo in category X") and the details page,
+ * which lists every category's members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MembershipBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int photos;
+
+    private PhotoTree tree;
+    private ConfigurableApplicationContext context;
+    private PhotoService photoService;
+    private PhotoController photoController;
+    private String haldiDir;
+    private String[] names;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        tree = PhotoTree.create(photos, 1024);
+        context = BenchmarkApp.start(tree);
+        photoService = context.getBean(PhotoService.class);
+        photoController = context.getBean(PhotoController.class);
+        haldiDir = photoService.getCategoryPath("haldi");
+        // A fixed stride through the catalog so lookups hit members and non-members alike
+        names = new String[1024];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = tree.photos.get((int) ((long) i * 7919 % photos));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        tree.close();
+    }
+
+    @Benchmark
+    public int getSelectedCount() {
+        return photoService.getSelectedCount();
+    }
+
+    @Benchmark
+    public int getCategoryCount() {
+        return photoService.getCategoryCount(haldiDir);
+    }
+
+    @Benchmark
+    public boolean isPhotoInCategory(Cursor cursor) {
+        String name = names[cursor.next++ & (names.length - 1)];
+        return photoService.isPhotoInCategory(name, haldiDir);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void categoryDetailsPage() throws IOException {
+        write(photoController.getCategoryDetails("haldi", 0, null).getBody());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void categoryDetailsAll() throws IOException {
+        write(photoController.getCategoryDetails(null, 0, null).getBody());
+    }
+
+    private static void write(StreamingResponseBody body) throws IOException {
+        body.writeTo(OutputStream.nullOutputStream());
+    }
+}
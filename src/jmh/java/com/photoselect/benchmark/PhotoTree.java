@@ -0,0 +1,110 @@
+package com.photoselect.benchmark;
+
+import com.photoselect.service.CatalogSnapshot;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic library in a temp directory, laid out like a real shoot: one subfolder per card
+ * in the source, every 5th photo selected and a spread of photos in each category folder.
+ * Every file is the same small JPEG padded to the requested size, so decoders and the EXIF
+ * reader still accept it.
+ */
+final class PhotoTree implements Closeable {
+    static final String[] CATEGORIES = {"haldi", "mehendi", "tilak", "jaimala", "shaadi", "vidai", "barat", "matkor"};
+    private static final int PHOTOS_PER_FOLDER = 1000;
+
+    final Path root;
+    final Path source;
+    final Path selected;
+    final Map<String, Path> categories = new LinkedHashMap<>();
+    // Source-relative names in catalog (name) order
+    final List<String> photos = new ArrayList<>();
+
+    private PhotoTree(Path root) {
+        this.root = root;
+        this.source = root.resolve("source");
+        this.selected = root.resolve("selected");
+    }
+
+    static PhotoTree create(int count, int bytesPerPhoto) throws IOException {
+        PhotoTree tree = new PhotoTree(Files.createTempDirectory("photoselect-jmh-"));
+        byte[] content = jpeg(bytesPerPhoto);
+        Files.createDirectories(tree.selected);
+        for (String category : CATEGORIES) {
+            tree.categories.put(category, Files.createDirectories(tree.selected.resolve(category)));
+        }
+        for (int i = 0; i < count; i++) {
+            String name = String.format("card-%03d/IMG_%06d.jpg", i / PHOTOS_PER_FOLDER, i);
+            Path file = tree.source.resolve(name);
+            if (i % PHOTOS_PER_FOLDER == 0) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, content);
+            tree.photos.add(name);
+        }
+        for (int i = 0; i < count; i++) {
+            String target = CatalogSnapshot.destinationName(tree.photos.get(i));
+            if (i % 5 == 0) {
+                link(tree.source.resolve(tree.photos.get(i)), tree.selected.resolve(target));
+            }
+            int c = 0;
+            for (Path dir : tree.categories.values()) {
+                if (i % (7 + c++) == 0) {
+                    link(tree.source.resolve(tree.photos.get(i)), dir.resolve(target));
+                }
+            }
+        }
+        return tree;
+    }
+
+    Path stateDir() {
+        return root.resolve("state");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // Hard links keep a 100k tree's destinations from doubling its disk use
+    private static void link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static byte[] jpeg(int size) throws IOException {
+        BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.DARK_GRAY);
+        g.fillRect(0, 0, 160, 120);
+        g.setColor(Color.ORANGE);
+        g.fillOval(40, 20, 80, 80);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        // Bytes after EOI are ignored by decoders; they only make the file as large as a real photo
+        return Arrays.copyOf(out.toByteArray(), Math.max(size, out.size()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.photoselect.benchmark;
+
+import com.photoselect.service.CatalogSnapshot;
+import com.photoselect.service.MembershipIndex;
+import com.photoselect.service.PhotoService;
+import com.photoselect.service.ReviewSessions;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One navigation step as the UI makes it (move the session's cursor, then read the photo's
+ * selection and category state), by a single reviewer and by twenty at once, while memberships
+ * keep changing underneath as copies land. None of it takes a lock, so the twenty-reviewer
+ * percentiles should stay close to the single reviewer's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReviewSessionBenchmark {
+
+    @Param({"2000", "100000"})
+    public int photos;
+
+    private PhotoTree tree;
+    private ConfigurableApplicationContext context;
+    private PhotoService photoService;
+    private ReviewSessions reviewSessions;
+    private List<String> names;
+    private Thread writer;
+
+    @State(Scope.Thread)
+    public static class Reviewer {
+        ReviewSessions.Session session;
+        int index;
+
+        @Setup(Level.Trial)
+        public void open(ReviewSessionBenchmark benchmark) {
+            session = benchmark.reviewSessions.open(null);
+            // Reviewers start in different parts of the shoot
+            index = new Random(session.getId().hashCode()).nextInt(benchmark.photos);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        tree = PhotoTree.create(photos, 1024);
+        context = BenchmarkApp.start(tree);
+        photoService = context.getBean(PhotoService.class);
+        reviewSessions = context.getBean(ReviewSessions.class);
+        names = photoService.getSourcePhotos();
+        MembershipIndex membershipIndex = context.getBean(MembershipIndex.class);
+        String selected = photoService.getSelectedDir();
+        writer = new Thread(() -> {
+            Random random = new Random(7);
+            while (!Thread.currentThread().isInterrupted()) {
+                String name = CatalogSnapshot.destinationName(names.get(random.nextInt(names.size())));
+                membershipIndex.add(selected, name);
+                membershipIndex.remove(selected, name);
+                LockSupport.parkNanos(100_000);
+            }
+        }, "membership-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        writer.interrupt();
+        writer.join();
+        context.close();
+        tree.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean navigateAlone(Reviewer reviewer) {
+        return navigate(reviewer);
+    }
+
+    @Benchmark
+    @Threads(20)
+    public boolean navigateWithTwentyReviewers(Reviewer reviewer) {
+        return navigate(reviewer);
+    }
+
+    private boolean navigate(Reviewer reviewer) {
+        int index = reviewer.index;
+        reviewer.index = (index + 1) % names.size();
+        reviewSessions.moveCursor(reviewSessions.get(reviewer.session.getId()), index);
+        String photo = names.get(index);
+        return photoService.isPhotoSelected(photo) | photoService.getCategoryMemberships(photo).containsValue(true);
+    }
+}
@@ -0,0 +1,92 @@
+package com.photoselect.loadtest;
+
+import java.net.http.HttpClient;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Request latencies per operation ("image", "state", ...). Each simulated reviewer fills its
+ * own instance; they are merged once the run is over, so recording needs no synchronization.
+ */
+final class Latencies {
+    private final Map<String, Samples> samples = new TreeMap<>();
+    private final Map<String, Integer> errors = new TreeMap<>();
+    private final Map<HttpClient.Version, Integer> protocols = new EnumMap<>(HttpClient.Version.class);
+    // Wall-clock length of the run, for throughput
+    long elapsedNanos;
+
+    void record(String operation, long nanos, HttpClient.Version version) {
+        samples.computeIfAbsent(operation, key -> new Samples()).add(nanos);
+        protocols.merge(version, 1, Integer::sum);
+    }
+
+    void error(String operation) {
+        errors.merge(operation, 1, Integer::sum);
+    }
+
+    void merge(Latencies other) {
+        other.samples.forEach((operation, values) -> samples.computeIfAbsent(operation, key -> new Samples()).addAll(values));
+        other.errors.forEach((operation, count) -> errors.merge(operation, count, Integer::sum));
+        other.protocols.forEach((version, count) -> protocols.merge(version, count, Integer::sum));
+    }
+
+    int requests() {
+        return samples.values().stream().mapToInt(values -> values.size).sum();
+    }
+
+    int errors() {
+        return errors.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    Map<String, Samples> byOperation() {
+        return samples;
+    }
+
+    Samples all() {
+        Samples all = new Samples();
+        samples.values().forEach(all::addAll);
+        return all;
+    }
+
+    Map<HttpClient.Version, Integer> protocols() {
+        return protocols;
+    }
+
+    static final class Samples {
+        private long[] values = new long[256];
+        private int size;
+        private boolean sorted;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            sorted = false;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        double percentileMillis(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * size) - 1;
+            return values[Math.max(0, Math.min(size - 1, rank))] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.photoselect.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays concurrent culling sessions against the app in each serving mode and prints latency
+ * percentiles and throughput side by side:
+ * <ul>
+ *   <li>platform: the default, Tomcat's worker pool of platform threads, spoken to over HTTP/1.1</li>
+ *   <li>vthreads: the {@code vthreads} profile, a virtual thread per request, spoken to over HTTP/2 (h2c)</li>
+ * </ul>
+ * Every mode gets its own server JVM and fresh destinations and caches. A warm-up pass runs
+ * first and is not counted. Options ({@code --name=value}): clients, steps, warmup-steps,
+ * photos, photo-kb, source (an existing folder instead of a generated one), width, think-ms
+ * and modes (comma separated).
+ */
+public final class LoadTest {
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "clients", "50",
+            "steps", "100",
+            "warmup-steps", "10",
+            "photos", "500",
+            "photo-kb", "1024",
+            "width", "1920",
+            "think-ms", "0",
+            "modes", "platform,vthreads");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int clients = Integer.parseInt(options.get("clients"));
+        int steps = Integer.parseInt(options.get("steps"));
+        int warmupSteps = Integer.parseInt(options.get("warmup-steps"));
+
+        SyntheticTree tree = options.containsKey("source")
+                ? SyntheticTree.existing(Paths.get(options.get("source")))
+                : SyntheticTree.generate(Integer.parseInt(options.get("photos")), Integer.parseInt(options.get("photo-kb")) * 1024);
+        System.out.printf("Source %s, %d reviewers x %d photos each%n", tree.source, clients, steps);
+        List<String> report = new ArrayList<>();
+        try (tree) {
+            for (String mode : options.get("modes").split(",")) {
+                Latencies result = run(tree, mode.trim(), clients, steps, warmupSteps, options);
+                report.addAll(describe(mode.trim(), result));
+            }
+        }
+        System.out.println();
+        report.forEach(System.out::println);
+    }
+
+    private static Latencies run(SyntheticTree tree, String mode, int clients, int steps, int warmupSteps,
+                                 Map<String, String> options) throws Exception {
+        boolean virtual = mode.equals("vthreads");
+        if (!virtual && !mode.equals("platform")) {
+            throw new IllegalArgumentException("Unknown mode " + mode + " (platform or vthreads)");
+        }
+        int width = Integer.parseInt(options.get("width"));
+        long thinkMillis = Long.parseLong(options.get("think-ms"));
+        ObjectMapper json = new ObjectMapper();
+        HttpClient client = HttpClient.newBuilder()
+                .version(virtual ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        System.out.printf("[%s] starting server...%n", mode);
+        try (ServerProcess server = ServerProcess.start(tree, mode, virtual ? "vthreads" : null)) {
+            int count = server.awaitReady(client, json);
+            System.out.printf("[%s] %d photos; warming up%n", mode, count);
+            replay(client, json, server, clients, warmupSteps, width, 0, count, count / 2);
+            System.out.printf("[%s] measuring%n", mode);
+            long begin = System.nanoTime();
+            Latencies result = replay(client, json, server, clients, steps, width, thinkMillis, count, 0);
+            result.elapsedNanos = System.nanoTime() - begin;
+            return result;
+        }
+    }
+
+    // Reviewers start spread out over the shoot, as several people splitting the work would
+    private static Latencies replay(HttpClient client, ObjectMapper json, ServerProcess server, int clients, int steps,
+                                    int width, long thinkMillis, int count, int offset) throws Exception {
+        Latencies merged = new Latencies();
+        try (ExecutorService reviewers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Latencies>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int start = (offset + (int) ((long) i * count / clients)) % count;
+                results.add(reviewers.submit(new Reviewer(client, json, server.base, start, steps, width, thinkMillis)));
+            }
+            for (Future<Latencies> result : results) {
+                merged.merge(result.get());
+            }
+        }
+        return merged;
+    }
+
+    private static List<String> describe(String mode, Latencies result) {
+        List<String> lines = new ArrayList<>();
+        double seconds = result.elapsedNanos / 1e9;
+        lines.add(String.format("== %s: %d requests in %.1f s = %.0f req/s, %d errors, protocols %s",
+                mode, result.requests(), seconds, result.requests() / seconds, result.errors(), result.protocols()));
+        lines.add(String.format("   %-10s %8s %10s %10s %10s", "op", "count", "p50 ms", "p99 ms", "max ms"));
+        result.byOperation().forEach((operation, samples) -> lines.add(row(operation, samples)));
+        lines.add(row("all", result.all()));
+        return lines;
+    }
+
+    private static String row(String operation, Latencies.Samples samples) {
+        return String.format("   %-10s %8d %10.2f %10.2f %10.2f", operation, samples.size(),
+                samples.percentileMillis(50), samples.percentileMillis(99), samples.percentileMillis(100));
+    }
+}
@@ -0,0 +1,101 @@
+package com.photoselect.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * One reviewer culling the shoot the way the UI does: open a session, then for each photo load
+ * its preview, report the cursor, fetch photo state a window at a time, and select every fifth
+ * photo (taking every other selection back). The server's own read-ahead runs as it would for
+ * a browser. Latencies are recorded per operation; failures are counted, not retried.
+ */
+final class Reviewer implements Callable<Latencies> {
+    private static final int STATE_WINDOW = 20;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient client;
+    private final ObjectMapper json;
+    private final URI base;
+    private final int start;
+    private final int steps;
+    private final int width;
+    private final long thinkMillis;
+    private final Latencies latencies = new Latencies();
+
+    Reviewer(HttpClient client, ObjectMapper json, URI base, int start, int steps, int width, long thinkMillis) {
+        this.client = client;
+        this.json = json;
+        this.base = base;
+        this.start = start;
+        this.steps = steps;
+        this.width = width;
+        this.thinkMillis = thinkMillis;
+    }
+
+    @Override
+    public Latencies call() throws IOException, InterruptedException {
+        String session = required(send("session", "POST", "/api/sessions?name=loadtest-" + start, null)).get("id").asText();
+        JsonNode catalog = required(send("catalog", "GET", "/api/catalog/version", null));
+        int count = catalog.get("count").asInt();
+        long layout = catalog.get("layout").asLong();
+        for (int step = 0; step < steps; step++) {
+            int index = (start + step) % count;
+            if (step % STATE_WINDOW == 0) {
+                send("state", "GET", "/api/photos/state?from=" + index + "&to=" + Math.min(count, index + STATE_WINDOW), null);
+            }
+            send("image", "GET", "/api/image/" + index + "?w=" + width + "&l=" + layout, null);
+            send("cursor", "PUT", "/api/sessions/" + session + "/cursor?index=" + index, null);
+            if (step % 5 == 0) {
+                send("select", "POST", "/api/select/" + index, session);
+            }
+            if (step % 10 == 5) {
+                send("unselect", "DELETE", "/api/selected/" + (index - 5 + count) % count, session);
+            }
+            if (thinkMillis > 0) {
+                Thread.sleep(thinkMillis);
+            }
+        }
+        send("close", "DELETE", "/api/sessions/" + session, null);
+        return latencies;
+    }
+
+    private JsonNode required(HttpResponse<byte[]> response) throws IOException {
+        if (response == null || response.statusCode() / 100 != 2) {
+            throw new IOException("Could not start the session" + (response == null ? "" : ": HTTP " + response.statusCode()));
+        }
+        return json.readTree(response.body());
+    }
+
+    // Reads the whole body, as a browser would, before the request counts as done; null if the request failed
+    private HttpResponse<byte[]> send(String operation, String method, String path, String session) throws InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+                .timeout(TIMEOUT)
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (session != null) {
+            request.header("X-Review-Session", session);
+        }
+        long begin = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            long nanos = System.nanoTime() - begin;
+            // 404/409 are answers (e.g. already removed by a copy still in flight); only server errors count as failures
+            if (response.statusCode() >= 500) {
+                latencies.error(operation);
+            } else {
+                latencies.record(operation, nanos, response.version());
+            }
+            return response;
+        } catch (IOException e) {
+            latencies.error(operation);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.photoselect.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application in its own JVM on a free port, so the server and the load generator don't
+ * share a heap, JIT or thread scheduler. Its output goes to a log file in the run directory.
+ */
+final class ServerProcess implements AutoCloseable {
+    private static final long STARTUP_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final Process process;
+    private final Path log;
+    final URI base;
+
+    private ServerProcess(Process process, Path log, int port) {
+        this.process = process;
+        this.log = log;
+        this.base = URI.create("http://localhost:" + port);
+    }
+
+    static ServerProcess start(SyntheticTree tree, String run, String profile) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Map<String, Path> destinations = tree.destinations(run);
+        Path state = Files.createDirectories(tree.stateDir(run));
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("com.photoselect.PhotoSelectorApplication");
+        command.add("--server.port=" + port);
+        command.add("--photos.source=" + tree.source);
+        command.add("--photos.dest=" + destinations.get("selected"));
+        for (String category : SyntheticTree.CATEGORIES) {
+            command.add("--photos.categories." + category + "=" + destinations.get(category));
+        }
+        command.add("--photos.catalog.snapshot-file=" + state.resolve("catalog.bin"));
+        command.add("--photos.metadata.cache-file=" + state.resolve("metadata.bin"));
+        command.add("--photos.copy.queue-file=" + state.resolve("copy-queue.log"));
+        command.add("--photos.decisions.journal-file=" + state.resolve("decisions.log"));
+        command.add("--photos.rendition.cache-dir=" + state.resolve("renditions"));
+        command.add("--photos.catalog.rescan-interval-seconds=0");
+        command.add("--spring.main.banner-mode=off");
+        command.add("--logging.level.com.photoselect=WARN");
+        if (profile != null) {
+            command.add("--spring.profiles.active=" + profile);
+        }
+        Path log = tree.root.resolve(run).resolve("server.log");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        return new ServerProcess(process, log, port);
+    }
+
+    // Waits for the port and then for startup indexing (metadata, burst hashes), which would otherwise
+    // skew the first requests; returns the number of photos in the catalog
+    int awaitReady(HttpClient client, ObjectMapper json) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Server exited with " + process.exitValue() + ", see " + log);
+            }
+            try {
+                JsonNode catalog = get(client, json, "/api/catalog/version");
+                JsonNode status = get(client, json, "/api/groups").get("status");
+                if (catalog != null && status != null
+                        && status.get("hashed").asInt() + status.get("failed").asInt() >= catalog.get("count").asInt()) {
+                    return catalog.get("count").asInt();
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IOException("Server not ready within " + STARTUP_TIMEOUT_MILLIS + " ms, see " + log);
+    }
+
+    private JsonNode get(HttpClient client, ObjectMapper json, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(path)).timeout(Duration.ofSeconds(30)).build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return response.statusCode() == 200 ? json.readTree(response.body()) : null;
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.photoselect.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Temp directory holding everything a server run writes: empty destination folders, the
+ * catalog/metadata/rendition caches and server logs. The source is either generated here
+ * (one subfolder per card, every file a small JPEG padded to a real photo's size) or an
+ * existing folder, which is only ever read.
+ */
+final class SyntheticTree implements Closeable {
+    static final String[] CATEGORIES = {"haldi", "mehendi", "tilak", "jaimala", "shaadi", "vidai", "barat", "matkor"};
+    private static final int PHOTOS_PER_FOLDER = 500;
+
+    final Path root;
+    final Path source;
+
+    private SyntheticTree(Path root, Path source) {
+        this.root = root;
+        this.source = source;
+    }
+
+    static SyntheticTree generate(int count, int bytesPerPhoto) throws IOException {
+        Path root = Files.createTempDirectory("photoselect-loadtest-");
+        SyntheticTree tree = new SyntheticTree(root, root.resolve("source"));
+        byte[] content = jpeg(bytesPerPhoto);
+        for (int i = 0; i < count; i++) {
+            Path file = tree.source.resolve(String.format("card-%03d/IMG_%06d.jpg", i / PHOTOS_PER_FOLDER, i));
+            if (i % PHOTOS_PER_FOLDER == 0) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, content);
+        }
+        return tree;
+    }
+
+    static SyntheticTree existing(Path source) throws IOException {
+        return new SyntheticTree(Files.createTempDirectory("photoselect-loadtest-"), source);
+    }
+
+    // A fresh set of destinations and caches per run, so the second mode starts as cold as the first
+    Map<String, Path> destinations(String run) throws IOException {
+        Map<String, Path> dirs = new LinkedHashMap<>();
+        Path selected = Files.createDirectories(root.resolve(run).resolve("selected"));
+        dirs.put("selected", selected);
+        for (String category : CATEGORIES) {
+            dirs.put(category, Files.createDirectories(selected.resolve(category)));
+        }
+        return dirs;
+    }
+
+    Path stateDir(String run) {
+        return root.resolve(run).resolve("state");
+    }
+
+    // Removes the temp directory only; an existing source lives elsewhere and is left alone
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static byte[] jpeg(int size) throws IOException {
+        BufferedImage image = new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.DARK_GRAY);
+        g.fillRect(0, 0, 2400, 1600);
+        g.setColor(Color.ORANGE);
+        g.fillOval(600, 200, 1200, 1200);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        // Bytes after EOI are ignored by decoders; they only make the file as large as a real photo
+        return Arrays.copyOf(out.toByteArray(), Math.max(size, out.size()));
+    }
+}
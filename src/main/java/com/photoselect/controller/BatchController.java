@@ -0,0 +1,33 @@
+package com.photoselect.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.service.BatchService;
+import com.photoselect.service.ReviewSessions;
+
+@RestController
+@RequestMapping("/api")
+public class BatchController {
+
+    private final BatchService batchService;
+
+    @Autowired
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchService.BatchResult> executeBatch(@RequestBody BatchService.BatchRequest request,
+                                                                 @RequestHeader(value = ReviewSessions.HEADER, required = false) String session) {
+        if (request.operations == null || request.operations.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Too many items is the client's problem; refuse before any of them is touched
+        if (batchService.countItems(request) > batchService.getMaxItems()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(batchService.execute(request, session));
+    }
+}
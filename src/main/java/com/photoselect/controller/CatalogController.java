@@ -0,0 +1,58 @@
+package com.photoselect.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.service.CatalogSnapshot;
+import com.photoselect.service.MetadataService;
+import com.photoselect.service.PhotoService;
+
+@RestController
+@RequestMapping("/api/catalog")
+public class CatalogController {
+
+    private final PhotoService photoService;
+    private final MetadataService metadataService;
+
+    @Autowired
+    public CatalogController(PhotoService photoService, MetadataService metadataService) {
+        this.photoService = photoService;
+        this.metadataService = metadataService;
+    }
+
+    // Cheap poll target for the UI: the version changes when new photos are published or the
+    // order changes; a new layout means indices from before now point at other photos.
+    @GetMapping("/version")
+    public ResponseEntity<CatalogVersion> getVersion() {
+        return ResponseEntity.ok(new CatalogVersion(photoService.getCatalog()));
+    }
+
+    // "name" or "capture-time"; switching to capture time may read headers first, so this can be slow once
+    @PutMapping("/order")
+    public ResponseEntity<CatalogVersion> setOrder(@RequestParam String order) {
+        if (!MetadataService.isSupportedOrder(order)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(new CatalogVersion(metadataService.setOrder(order)));
+    }
+
+    // Lets a client find its place again after the layout changed; -1 if unknown
+    @GetMapping("/indexOf")
+    public ResponseEntity<Integer> indexOf(@RequestParam String photo) {
+        return ResponseEntity.ok(photoService.getCatalog().indexOf(photo));
+    }
+
+    public static class CatalogVersion {
+        public long version;
+        public long layout;
+        public String order;
+        public int count;
+
+        public CatalogVersion(CatalogSnapshot snapshot) {
+            this.version = snapshot.getVersion();
+            this.layout = snapshot.getLayout();
+            this.order = snapshot.getOrder();
+            this.count = snapshot.size();
+        }
+    }
+}
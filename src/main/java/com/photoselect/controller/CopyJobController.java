@@ -0,0 +1,60 @@
+package com.photoselect.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.service.CopyEngine;
+import com.photoselect.service.CopyJob;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class CopyJobController {
+
+    private final CopyEngine copyEngine;
+
+    @Autowired
+    public CopyJobController(CopyEngine copyEngine) {
+        this.copyEngine = copyEngine;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getJobs(@RequestParam(required = false) String status) {
+        CopyJob.Status filter;
+        try {
+            filter = status == null ? null : CopyJob.Status.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("counts", copyEngine.getStatusCounts());
+        body.put("jobs", copyEngine.getJobs(filter));
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CopyJob> getJob(@PathVariable String id) {
+        CopyJob job = copyEngine.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<CopyJob> retryJob(@PathVariable String id) {
+        CopyJob job = copyEngine.retry(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @PostMapping("/retry")
+    public ResponseEntity<List<CopyJob>> retryFailed() {
+        return ResponseEntity.ok(copyEngine.retryFailed());
+    }
+}
@@ -0,0 +1,35 @@
+package com.photoselect.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.service.DecisionJournal;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/decisions")
+public class DecisionController {
+
+    private final DecisionJournal decisionJournal;
+
+    @Autowired
+    public DecisionController(DecisionJournal decisionJournal) {
+        this.decisionJournal = decisionJournal;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(decisionJournal.getStatus());
+    }
+
+    // Applies the pending decisions to the folders now; copies then show up under /api/jobs
+    @PostMapping("/materialize")
+    public ResponseEntity<Map<String, Object>> materialize() {
+        if (!decisionJournal.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(decisionJournal.getStatus());
+        }
+        return ResponseEntity.ok(decisionJournal.materialize());
+    }
+}
@@ -0,0 +1,161 @@
+package com.photoselect.controller;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import com.photoselect.service.ChangeFeed;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Server-Sent Events stream of selection/category changes, so every open browser sees what
+ * any reviewer does without polling. The first event carries full counts; every later one
+ * carries the changed photos plus absolute counts for the destinations they touched.
+ *
+ * <p>Each client has its own small outbox and sender (virtual) thread, so one stalled browser
+ * never holds up the change feed or anyone else. A client that falls behind has its backlog
+ * replaced by a single full-state update; one whose send stays blocked is dropped.
+ */
+@RestController
+@RequestMapping("/api")
+public class EventController {
+    private static final Logger logger = LoggerFactory.getLogger(EventController.class);
+    // Keeps idle connections from being closed by proxies and notices clients that went away
+    private static final long HEARTBEAT_SECONDS = 25;
+    // Updates waiting per client before its backlog is collapsed into one full-state update
+    private static final int OUTBOX_SIZE = 16;
+    // A send blocked this long (e.g. a laptop asleep with a full TCP window) drops the client
+    private static final long SEND_TIMEOUT_SECONDS = 15;
+
+    private final ChangeFeed changeFeed;
+    private final CopyOnWriteArrayList<Client> clients = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService watchdog;
+
+    @Autowired
+    public EventController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @PostConstruct
+    void init() {
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "event-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        watchdog.scheduleWithFixedDelay(() -> clients.forEach(Client::checkStalled),
+                SEND_TIMEOUT_SECONDS, SEND_TIMEOUT_SECONDS / 3, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdownNow();
+        clients.forEach(Client::close);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        Client client = new Client(new SseEmitter(0L));
+        clients.add(client);
+        // Subscribed before the snapshot is taken, so no change falls between the two
+        changeFeed.subscribe(client);
+        client.outbox.offer(changeFeed.snapshot());
+        client.start();
+        logger.debug("Event stream opened ({} clients)", clients.size());
+        return client.emitter;
+    }
+
+    private final class Client implements Consumer<ChangeFeed.Update> {
+        private final SseEmitter emitter;
+        private final BlockingQueue<ChangeFeed.Update> outbox = new ArrayBlockingQueue<>(OUTBOX_SIZE);
+        private volatile Thread sender;
+        private volatile boolean closed;
+        // System.nanoTime() when the current send started, 0 while idle
+        private volatile long sendingSince;
+
+        Client(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(e -> close());
+        }
+
+        void start() {
+            sender = Thread.ofVirtual().name("event-sender").start(this::sendLoop);
+        }
+
+        // Called on the change feed thread: never blocks
+        @Override
+        public void accept(ChangeFeed.Update update) {
+            if (outbox.offer(update)) {
+                return;
+            }
+            // Too far behind for the individual changes to matter: one full-state update instead
+            outbox.clear();
+            outbox.offer(changeFeed.snapshot());
+            logger.debug("Event stream fell behind, collapsed its backlog into a reload");
+        }
+
+        private void sendLoop() {
+            try {
+                while (!closed) {
+                    ChangeFeed.Update update = outbox.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                    if (closed) {
+                        break;
+                    }
+                    sendingSince = System.nanoTime();
+                    if (update != null) {
+                        emitter.send(SseEmitter.event().name("state").data(update, MediaType.APPLICATION_JSON));
+                    } else {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                    sendingSince = 0;
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                // Completed here rather than in close(): completing waits for a send in progress
+                try {
+                    emitter.complete();
+                } catch (IllegalStateException e) {
+                    // already completed
+                }
+            }
+        }
+
+        void checkStalled() {
+            long since = sendingSince;
+            if (since != 0 && System.nanoTime() - since > TimeUnit.SECONDS.toNanos(SEND_TIMEOUT_SECONDS)) {
+                logger.info("Dropping event stream blocked on a send for over {} s", SEND_TIMEOUT_SECONDS);
+                close();
+            }
+        }
+
+        // Stops updates to this client right away; the sender finishes (or stays stuck) on its own
+        void close() {
+            closed = true;
+            if (clients.remove(this)) {
+                changeFeed.unsubscribe(this);
+                Thread thread = sender;
+                if (thread != null) {
+                    thread.interrupt();
+                }
+                logger.debug("Event stream closed ({} clients)", clients.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.photoselect.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.exception.PhotoNotFoundException;
+import com.photoselect.service.ExportService;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+    private static final Logger logger = LoggerFactory.getLogger(ExportController.class);
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private final ExportService exportService;
+
+    @Autowired
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // /api/export/selected.zip or /api/export/{category}.zip, streamed as it is built (no Content-Length)
+    @GetMapping("/{name}.zip")
+    public void export(@PathVariable String name, HttpServletResponse response) throws IOException {
+        String dir = exportService.resolveDir(name);
+        if (dir == null) {
+            throw new PhotoNotFoundException("No such category: " + name);
+        }
+        try (ExportService.Slot slot = exportService.tryStart()) {
+            if (slot == null) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+                response.setStatus(HttpServletResponse.SC_TOO_MANY_REQUESTS);
+                return;
+            }
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name.toLowerCase() + ".zip\"");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            try {
+                exportService.writeZip(dir, response.getOutputStream());
+            } catch (IOException e) {
+                // Usually the client cancelled the download; the response is committed, so just stop
+                logger.warn("Export of {} aborted: {}", name, e.getMessage());
+            }
+        }
+    }
+}
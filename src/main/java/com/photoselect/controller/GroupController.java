@@ -0,0 +1,33 @@
+package com.photoselect.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.service.BurstService;
+import com.photoselect.service.PhotoService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/groups")
+public class GroupController {
+
+    private final PhotoService photoService;
+    private final BurstService burstService;
+
+    @Autowired
+    public GroupController(PhotoService photoService, BurstService burstService) {
+        this.photoService = photoService;
+        this.burstService = burstService;
+    }
+
+    // Bursts/near-duplicates as photo indices in the current order; grows while hashing is still running
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getGroups() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", burstService.getStatus());
+        body.put("groups", burstService.getGroups(photoService.getCatalog()));
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,169 @@
+package com.photoselect.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import com.photoselect.service.IoMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes image bodies straight to the servlet response, honouring single byte-range
+ * requests. Files go out through Tomcat's sendfile when the connector offers it and
+ * through {@link FileChannel#transferTo} otherwise, so the bytes never pass through
+ * our own buffers.
+ */
+final class ImageTransfer {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Below this Tomcat's own default, sendfile costs more than a plain write
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private ImageTransfer() {
+    }
+
+    static String contentType(String filename) {
+        return MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    // "from" tags the served-bytes counter: "file" for originals, "rendition" for scaled copies
+    static void writeFile(File file, String from, String etag, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        long length = file.length();
+        long[] range = prepare(length, etag, file.lastModified(), contentType(file.getName()), request, response);
+        if (range == null || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        long start = range[0];
+        long count = range[1] - range[0] + 1;
+        IoMetrics.served(from, count);
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    static void writeBuffer(ByteBuffer buffer, String filename, String etag, long lastModified,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long[] range = prepare(buffer.remaining(), etag, lastModified, contentType(filename), request, response);
+        if (range == null || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        IoMetrics.served("memory", range[1] - range[0] + 1);
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(slice.position() + (int) range[0]);
+        slice.limit(slice.position() + (int) (range[1] - range[0] + 1));
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while (slice.hasRemaining()) {
+            out.write(slice);
+        }
+    }
+
+    // Sets status and entity headers; returns the inclusive byte range to send, or null when there is no body.
+    private static long[] prepare(long length, String etag, long lastModified, String contentType,
+                                  HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setContentType(contentType);
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !rangeApplies(etag, lastModified, request)) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentLengthLong(length);
+            return new long[] {0, length - 1};
+        }
+        long[] range = parseRange(rangeHeader, length);
+        if (range == null) {
+            // Multiple or malformed ranges: ignoring Range and sending everything is always allowed
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentLengthLong(length);
+            return new long[] {0, length - 1};
+        }
+        if (range[0] > range[1]) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setContentLengthLong(0);
+            return null;
+        }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range[0] + "-" + range[1] + "/" + length);
+        response.setContentLengthLong(range[1] - range[0] + 1);
+        return range;
+    }
+
+    // If-Range: only resume when the client still holds the current representation
+    private static boolean rangeApplies(String etag, long lastModified, HttpServletRequest request) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Single "bytes=a-b", "bytes=a-" or "bytes=-n"; an empty range (start > end) means unsatisfiable.
+    private static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new long[] {1, 0};
+                }
+                return new long[] {Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return new long[] {1, 0};
+            }
+            return new long[] {start, Math.min(end, length - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package com.photoselect.controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.photoselect.service.BurstService;
+import com.photoselect.service.CatalogSnapshot;
+import com.photoselect.service.CategoryRegistry;
+import com.photoselect.service.CopyJob;
+import com.photoselect.service.MetadataService;
+import com.photoselect.service.PhotoMetadata;
 import com.photoselect.service.PhotoService;
+import com.photoselect.service.IoMetrics;
+import com.photoselect.service.PrefetchCache;
+import com.photoselect.service.PreviewService;
+import com.photoselect.service.RenditionService;
+import com.photoselect.service.ReviewSessions;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -17,13 +38,33 @@ import java.util.ArrayList;
 @RequestMapping("/api")
 public class PhotoController {
 
+    private static final int MAX_STATE_WINDOW = 500;
+    private static final int DEFAULT_DETAILS_PAGE = 200;
+    private static final int MAX_DETAILS_PAGE = 1000;
+
     private final PhotoService photoService;
-    private List<String> files = new ArrayList<>();
+    private final RenditionService renditionService;
+    private final PrefetchCache prefetchCache;
+    private final PreviewService previewService;
+    private final MetadataService metadataService;
+    private final BurstService burstService;
+    private final ReviewSessions reviewSessions;
+    private final CategoryRegistry categoryRegistry;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public PhotoController(PhotoService photoService) {
+    public PhotoController(PhotoService photoService, RenditionService renditionService, PrefetchCache prefetchCache,
+                           PreviewService previewService, MetadataService metadataService, BurstService burstService,
+                           ReviewSessions reviewSessions, CategoryRegistry categoryRegistry, ObjectMapper objectMapper) {
         this.photoService = photoService;
-        this.files = photoService.getAllSourcePhotos();
+        this.renditionService = renditionService;
+        this.prefetchCache = prefetchCache;
+        this.previewService = previewService;
+        this.metadataService = metadataService;
+        this.burstService = burstService;
+        this.reviewSessions = reviewSessions;
+        this.categoryRegistry = categoryRegistry;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/selectedCount")
@@ -33,33 +74,120 @@ public class PhotoController {
 
     @GetMapping("/count")
     public int getCount() {
-        return files.size();
+        return photoService.getSourcePhotos().size();
     }
 
+    // Without w/size the full-resolution original is served (used for zooming)
     @GetMapping("/image/{index}")
-    public ResponseEntity<FileSystemResource> getImage(@PathVariable int index) {
+    public void getImage(@PathVariable int index,
+                         @RequestParam(required = false) Integer w,
+                         @RequestParam(required = false) String size,
+                         WebRequest webRequest,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        List<String> files = photoService.getSourcePhotos();
         if (index < 0 || index >= files.size()) {
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
         File file = photoService.getPhotoFile(files.get(index));
-        FileSystemResource resource = new FileSystemResource(file);
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CACHE_CONTROL, "public, max-age=86400, must-revalidate"); // cache for 1 day
-        headers.add(HttpHeaders.ETAG, String.valueOf(file.lastModified()));
-        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+        int width = "thumb".equalsIgnoreCase(size) ? renditionService.getThumbnailWidth() : (w == null ? 0 : Math.max(0, w));
+        long lastModified = file.lastModified();
+        long length = file.length();
+        String etag = imageETag(lastModified, length, width);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=86400, must-revalidate"); // cache for 1 day
+        // Answer revalidations from metadata alone, before any bytes are read or prefetched
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        PrefetchCache.Entry cached = prefetchCache.get(file, width, lastModified, length);
+        prefetchNeighbours(files, index, width);
+        if (cached != null) {
+            ImageTransfer.writeBuffer(cached.getBuffer(), cached.getFilename(), etag, lastModified, request, response);
+            return;
+        }
+        if (width > 0) {
+            File rendition = renditionService.getRendition(file, width);
+            if (rendition != null) {
+                ImageTransfer.writeFile(rendition, "rendition", etag, request, response);
+                return;
+            }
+        }
+        ImageTransfer.writeFile(file, "file", etag, request, response);
+    }
+
+    // Strong validator: changes whenever the source bytes (mtime/size) or the requested variant change
+    private String imageETag(long lastModified, long length, int width) {
+        String tag = Long.toHexString(lastModified) + "-" + Long.toHexString(length);
+        return "\"" + (width > 0 ? tag + "-w" + width : tag) + "\"";
+    }
+
+    // The JPEG preview embedded in the photo's header, for showing while the full image loads;
+    // 404 if the photo has none. Validated like the full image: the preview changes with the source.
+    @GetMapping("/preview/{index}")
+    public ResponseEntity<byte[]> getPreview(@PathVariable int index, WebRequest webRequest, HttpServletResponse response) {
+        CatalogSnapshot snapshot = photoService.getCatalog();
+        if (index < 0 || index >= snapshot.size()) {
+            return ResponseEntity.notFound().build();
+        }
+        File file = photoService.getPhotoFile(snapshot.getPhotos().get(index));
+        long lastModified = file.lastModified();
+        long length = file.length();
+        String etag = imageETag(lastModified, length, 0);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=86400, must-revalidate");
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            previewService.prefetch(snapshot, index);
+            return null;
+        }
+        byte[] preview = previewService.get(snapshot, index, lastModified, length);
+        previewService.prefetch(snapshot, index);
+        if (preview == null) {
+            return ResponseEntity.notFound().build();
+        }
+        IoMetrics.served("preview", preview.length);
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .body(preview);
+    }
+
+    @GetMapping("/preview/stats")
+    public ResponseEntity<java.util.Map<String, Object>> getPreviewStats() {
+        return ResponseEntity.ok(previewService.getStats());
+    }
+
+    @GetMapping("/prefetch/stats")
+    public ResponseEntity<java.util.Map<String, Object>> getPrefetchStats() {
+        return ResponseEntity.ok(prefetchCache.getStats());
+    }
+
+    private void prefetchNeighbours(List<String> files, int index, int width) {
+        List<File> upcoming = new ArrayList<>();
+        for (int i = index + 1; i <= index + prefetchCache.getAhead() && i < files.size(); i++) {
+            upcoming.add(photoService.getSourceFile(files.get(i)));
+        }
+        for (int i = index - 1; i >= index - prefetchCache.getBehind() && i >= 0; i--) {
+            upcoming.add(photoService.getSourceFile(files.get(i)));
+        }
+        prefetchCache.prefetch(upcoming, width);
     }
 
     @PostMapping("/select/{index}")
-    public ResponseEntity<String> selectImage(@PathVariable int index) throws IOException {
+    public ResponseEntity<String> selectImage(@PathVariable int index,
+                                              @RequestHeader(value = ReviewSessions.HEADER, required = false) String session) throws IOException {
+        List<String> files = photoService.getSourcePhotos();
         if (index < 0 || index >= files.size()) {
             return ResponseEntity.notFound().build();
         }
-        photoService.selectPhoto(files.get(index));
-        return ResponseEntity.ok("Copied: " + files.get(index));
+        CopyJob job = picked(session, "selected", files.get(index), () -> photoService.selectPhoto(files.get(index)));
+        return copyResponse(job, "selected", files.get(index));
     }
 
     @GetMapping("/isSelected/{index}")
     public ResponseEntity<Boolean> isPhotoSelected(@PathVariable int index) {
+        List<String> files = photoService.getSourcePhotos();
         if (index < 0 || index >= files.size()) {
             return ResponseEntity.ok(false);
         }
@@ -67,11 +195,21 @@ public class PhotoController {
     }
 
     @DeleteMapping("/selected/{index}")
-    public ResponseEntity<String> deleteSelected(@PathVariable int index) {
+    public ResponseEntity<String> deleteSelected(@PathVariable int index,
+                                                 @RequestHeader(value = ReviewSessions.HEADER, required = false) String session) {
+        List<String> files = photoService.getSourcePhotos();
         if (index < 0 || index >= files.size()) {
             return ResponseEntity.notFound().build();
         }
+        ResponseEntity<String> kept = keptForOthers(session, "selected", files.get(index));
+        if (kept != null) {
+            return kept;
+        }
         boolean deleted = photoService.deleteSelectedPhoto(files.get(index));
+        if (deleted && reviewSessions.isPicked("selected", files.get(index))) {
+            // Picked again by another reviewer while it was being removed; their pick wins
+            photoService.selectPhoto(files.get(index));
+        }
         if (deleted) {
             return ResponseEntity.ok("Deleted: " + files.get(index));
         } else {
@@ -79,162 +217,243 @@ public class PhotoController {
         }
     }
 
-    @PostMapping("/copyTo/haldi/{index}")
-    public ResponseEntity<String> copyToHaldi(@PathVariable int index) {
+    // Categories come from photos.categories.*; unknown names are a 400
+    @PostMapping("/copyTo/{category}/{index}")
+    public ResponseEntity<String> copyToCategory(@PathVariable String category, @PathVariable int index,
+                                                 @RequestHeader(value = ReviewSessions.HEADER, required = false) String session) {
+        List<String> files = photoService.getSourcePhotos();
         if (index < 0 || index >= files.size()) {
             return ResponseEntity.notFound().build();
         }
-        photoService.copyToCategory(files.get(index), photoService.getHaldiDir(), "Haldi");
-        return ResponseEntity.ok("Copied to Haldi: " + files.get(index));
-    }
-
-    @PostMapping("/copyTo/mehendi/{index}")
-    public ResponseEntity<String> copyToMehendi(@PathVariable int index) {
-        if (index < 0 || index >= files.size()) {
-            return ResponseEntity.notFound().build();
+        CategoryRegistry.Category target = categoryRegistry.get(category);
+        if (target == null) {
+            return ResponseEntity.badRequest().body("Invalid category: " + category);
         }
-        photoService.copyToCategory(files.get(index), photoService.getMehendiDir(), "Mehendi");
-        return ResponseEntity.ok("Copied to Mehendi: " + files.get(index));
+        CopyJob job = picked(session, target.name, files.get(index),
+                () -> photoService.copyToCategory(files.get(index), target.dir, target.label));
+        return copyResponse(job, target.label, files.get(index));
     }
 
-    @PostMapping("/copyTo/tilak/{index}")
-    public ResponseEntity<String> copyToTilak(@PathVariable int index) {
-        if (index < 0 || index >= files.size()) {
-            return ResponseEntity.notFound().build();
+    // The pick is recorded before the copy starts: a concurrent delete that checks isPicked after
+    // our copy found the photo already present must see it, or the photo would go while picked
+    private CopyJob picked(String session, String destination, String filename, java.util.function.Supplier<CopyJob> copy) {
+        reviewSessions.pick(session, destination, filename);
+        try {
+            return copy.get();
+        } catch (RuntimeException e) {
+            reviewSessions.unpick(session, destination, filename);
+            throw e;
         }
-        photoService.copyToCategory(files.get(index), photoService.getTilakDir(), "Tilak");
-        return ResponseEntity.ok("Copied to Tilak: " + files.get(index));
     }
 
-    @PostMapping("/copyTo/jaimala/{index}")
-    public ResponseEntity<String> copyToJaimala(@PathVariable int index) {
-        if (index < 0 || index >= files.size()) {
-            return ResponseEntity.notFound().build();
+    // Copies run in the background: 202 with the job to poll, or 200 if nothing had to be copied
+    private ResponseEntity<String> copyResponse(CopyJob job, String label, String filename) {
+        if (job == null) {
+            return ResponseEntity.ok("Already in " + label + ": " + filename);
+        }
+        if (job.getStatus() == CopyJob.Status.JOURNALED) {
+            return ResponseEntity.ok("Recorded for " + label + ": " + filename + " (applied when decisions are materialized)");
         }
-        photoService.copyToCategory(files.get(index), photoService.getJaimalaDir(), "Jaimala");
-        return ResponseEntity.ok("Copied to Jaimala: " + files.get(index));
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/jobs/" + job.getId())
+                .body("Queued copy to " + label + ": " + filename + " (job " + job.getId() + ")");
     }
 
-    @PostMapping("/copyTo/shaadi/{index}")
-    public ResponseEntity<String> copyToShaadi(@PathVariable int index) {
-        if (index < 0 || index >= files.size()) {
-            return ResponseEntity.notFound().build();
+    // The configured categories in order, with labels for buttons and current counts
+    @GetMapping("/categories")
+    public ResponseEntity<List<CategoryInfo>> getCategories() {
+        List<CategoryInfo> categories = new ArrayList<>();
+        for (CategoryRegistry.Category category : categoryRegistry.all()) {
+            categories.add(new CategoryInfo(category.name, category.label, photoService.getCategoryCount(category.dir)));
         }
-        photoService.copyToCategory(files.get(index), photoService.getShaadiDir(), "Shaadi");
-        return ResponseEntity.ok("Copied to Shaadi: " + files.get(index));
+        return ResponseEntity.ok(categories);
     }
 
-    @PostMapping("/copyTo/vidai/{index}")
-    public ResponseEntity<String> copyToVidai(@PathVariable int index) {
-        if (index < 0 || index >= files.size()) {
-            return ResponseEntity.notFound().build();
-        }
-        photoService.copyToCategory(files.get(index), photoService.getVidaiDir(), "Vidai");
-        return ResponseEntity.ok("Copied to Vidai: " + files.get(index));
+    @GetMapping("/categoryCounts")
+    public ResponseEntity<java.util.Map<String, Integer>> getCategoryCounts() {
+        return ResponseEntity.ok(photoService.getCategoryCounts());
     }
 
-    @PostMapping("/copyTo/barat/{index}")
-    public ResponseEntity<String> copyToBarat(@PathVariable int index) {
-        if (index < 0 || index >= files.size()) {
+    @GetMapping("/photo/{index}/state")
+    public ResponseEntity<PhotoState> getPhotoState(@PathVariable int index) {
+        CatalogSnapshot snapshot = photoService.getCatalog();
+        if (index < 0 || index >= snapshot.size()) {
             return ResponseEntity.notFound().build();
         }
-        photoService.copyToCategory(files.get(index), photoService.getBaratDir(), "Barat");
-        return ResponseEntity.ok("Copied to Barat: " + files.get(index));
+        PhotoState state = buildPhotoState(snapshot, index);
+        state.selectedCount = photoService.getSelectedCount();
+        state.categoryCounts = photoService.getCategoryCounts();
+        return ResponseEntity.ok(state);
     }
 
-    @PostMapping("/copyTo/matkor/{index}")
-    public ResponseEntity<String> copyToMatkor(@PathVariable int index) {
-        if (index < 0 || index >= files.size()) {
-            return ResponseEntity.notFound().build();
+    // State for photos [from, to), so the UI can fetch a window of upcoming photos in one call
+    @GetMapping("/photos/state")
+    public ResponseEntity<StateWindow> getPhotoStates(@RequestParam int from, @RequestParam int to) {
+        CatalogSnapshot snapshot = photoService.getCatalog();
+        int start = Math.max(0, from);
+        int end = Math.min(Math.min(to, snapshot.size()), start + MAX_STATE_WINDOW);
+        java.util.List<PhotoState> photos = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            photos.add(buildPhotoState(snapshot, i));
         }
-        photoService.copyToCategory(files.get(index), photoService.getMatkorDir(), "Matkor");
-        return ResponseEntity.ok("Copied to Matkor: " + files.get(index));
+        return ResponseEntity.ok(new StateWindow(start, Math.max(start, end), snapshot.size(),
+                photoService.getSelectedCount(), photoService.getCategoryCounts(), photos));
     }
 
-    @GetMapping("/categoryCounts")
-    public ResponseEntity<java.util.Map<String, Integer>> getCategoryCounts() {
-        java.util.Map<String, Integer> counts = new java.util.HashMap<>();
-        counts.put("haldi", photoService.getCategoryCount(photoService.getHaldiDir()));
-        counts.put("mehendi", photoService.getCategoryCount(photoService.getMehendiDir()));
-        counts.put("tilak", photoService.getCategoryCount(photoService.getTilakDir()));
-        counts.put("jaimala", photoService.getCategoryCount(photoService.getJaimalaDir()));
-        counts.put("shaadi", photoService.getCategoryCount(photoService.getShaadiDir()));
-        counts.put("vidai", photoService.getCategoryCount(photoService.getVidaiDir()));
-        counts.put("barat", photoService.getCategoryCount(photoService.getBaratDir()));
-        counts.put("matkor", photoService.getCategoryCount(photoService.getMatkorDir()));
-        return ResponseEntity.ok(counts);
+    private PhotoState buildPhotoState(CatalogSnapshot snapshot, int index) {
+        String filename = snapshot.getPhotos().get(index);
+        PhotoState state = new PhotoState(index, filename, photoService.isPhotoSelected(filename),
+                photoService.getCategoryMemberships(filename));
+        PhotoMetadata metadata = metadataService.get(filename);
+        if (metadata != null) {
+            state.camera = metadata.getCamera();
+            if (metadata.hasCaptureTime()) {
+                state.captureTime = LocalDateTime.ofEpochSecond(Math.floorDiv(metadata.getCaptureTime(), 1000), 0,
+                        ZoneOffset.UTC).toString();
+            }
+        }
+        BurstService.Group group = burstService.getGroup(filename, snapshot);
+        if (group != null) {
+            state.groupId = group.id;
+            state.groupSize = group.size;
+            state.groupPosition = java.util.Arrays.binarySearch(group.indices, index) + 1;
+        }
+        return state;
     }
 
     @GetMapping("/isInCategory/{category}/{index}")
     public ResponseEntity<Boolean> isPhotoInCategory(@PathVariable String category, @PathVariable int index) {
+        List<String> files = photoService.getSourcePhotos();
         if (index < 0 || index >= files.size()) {
             return ResponseEntity.ok(false);
         }
-        String categoryPath = getCategoryPath(category);
-        if (categoryPath == null) {
+        CategoryRegistry.Category registered = categoryRegistry.get(category);
+        if (registered == null) {
             return ResponseEntity.ok(false);
         }
-        return ResponseEntity.ok(photoService.isPhotoInCategory(files.get(index), categoryPath));
+        return ResponseEntity.ok(photoService.isPhotoInCategory(files.get(index), registered.dir));
     }
 
     @DeleteMapping("/deleteFrom/{category}/{index}")
-    public ResponseEntity<String> deleteFromCategory(@PathVariable String category, @PathVariable int index) {
+    public ResponseEntity<String> deleteFromCategory(@PathVariable String category, @PathVariable int index,
+                                                     @RequestHeader(value = ReviewSessions.HEADER, required = false) String session) {
+        List<String> files = photoService.getSourcePhotos();
         if (index < 0 || index >= files.size()) {
             return ResponseEntity.notFound().build();
         }
-        String categoryPath = getCategoryPath(category);
-        if (categoryPath == null) {
+        CategoryRegistry.Category registered = categoryRegistry.get(category);
+        if (registered == null) {
             return ResponseEntity.badRequest().body("Invalid category: " + category);
         }
-        String categoryName = category.substring(0, 1).toUpperCase() + category.substring(1);
-        boolean deleted = photoService.deleteFromCategory(files.get(index), categoryPath, categoryName);
+        ResponseEntity<String> kept = keptForOthers(session, registered.name, files.get(index));
+        if (kept != null) {
+            return kept;
+        }
+        boolean deleted = photoService.deleteFromCategory(files.get(index), registered.dir, registered.label);
+        if (deleted && reviewSessions.isPicked(registered.name, files.get(index))) {
+            photoService.copyToCategory(files.get(index), registered.dir, registered.label);
+        }
         if (deleted) {
-            return ResponseEntity.ok("Deleted from " + categoryName + ": " + files.get(index));
+            return ResponseEntity.ok("Deleted from " + registered.label + ": " + files.get(index));
         } else {
-            return ResponseEntity.status(404).body("File not found in " + categoryName + " folder: " + files.get(index));
+            return ResponseEntity.status(404).body("File not found in " + registered.label + " folder: " + files.get(index));
         }
     }
 
-    private String getCategoryPath(String category) {
-        return switch (category.toLowerCase()) {
-            case "haldi" -> photoService.getHaldiDir();
-            case "mehendi" -> photoService.getMehendiDir();
-            case "tilak" -> photoService.getTilakDir();
-            case "jaimala" -> photoService.getJaimalaDir();
-            case "shaadi" -> photoService.getShaadiDir();
-            case "vidai" -> photoService.getVidaiDir();
-            case "barat" -> photoService.getBaratDir();
-            case "matkor" -> photoService.getMatkorDir();
-            default -> null;
-        };
+    // Several reviewers' picks merge add-wins: a photo only leaves a destination once nobody else picks it
+    private ResponseEntity<String> keptForOthers(String session, String destination, String filename) {
+        List<String> others = reviewSessions.release(session, destination, filename);
+        if (!others.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Kept in " + destination + ": also picked by " + String.join(", ", others));
+        }
+        // Still held without us being told who (a pick that landed after our release); don't delete under it
+        if (reviewSessions.isPicked(destination, filename)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Kept in " + destination + ": picked again by another reviewer");
+        }
+        return null;
     }
 
+    // Without a category: every category's photos, in the original map-of-lists shape.
+    // With ?category=: one page of that category ({category, total, offset, limit, photos}).
+    // Both are streamed, so the page can start rendering before the whole list is written.
     @GetMapping("/categoryDetails")
-    public ResponseEntity<java.util.Map<String, java.util.List<PhotoInfo>>> getCategoryDetails() {
-        java.util.Map<String, java.util.List<PhotoInfo>> details = new java.util.LinkedHashMap<>();
-        details.put("haldi", getCategoryPhotosWithIndices(photoService.getHaldiDir()));
-        details.put("mehendi", getCategoryPhotosWithIndices(photoService.getMehendiDir()));
-        details.put("tilak", getCategoryPhotosWithIndices(photoService.getTilakDir()));
-        details.put("jaimala", getCategoryPhotosWithIndices(photoService.getJaimalaDir()));
-        details.put("shaadi", getCategoryPhotosWithIndices(photoService.getShaadiDir()));
-        details.put("vidai", getCategoryPhotosWithIndices(photoService.getVidaiDir()));
-        details.put("barat", getCategoryPhotosWithIndices(photoService.getBaratDir()));
-        details.put("matkor", getCategoryPhotosWithIndices(photoService.getMatkorDir()));
-        return ResponseEntity.ok(details);
-    }
+    public ResponseEntity<StreamingResponseBody> getCategoryDetails(@RequestParam(required = false) String category,
+                                                                    @RequestParam(defaultValue = "0") int offset,
+                                                                    @RequestParam(required = false) Integer limit) {
+        // One snapshot for the whole response: every index written below is resolved against it
+        CatalogSnapshot snapshot = photoService.getCatalog();
+        if (category != null) {
+            CategoryRegistry.Category registered = categoryRegistry.get(category);
+            if (registered == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            String categoryPath = registered.dir;
+            int start = Math.max(0, offset);
+            int pageSize = limit == null ? DEFAULT_DETAILS_PAGE : Math.max(0, Math.min(limit, MAX_DETAILS_PAGE));
+            StreamingResponseBody body = out -> {
+                try (JsonGenerator json = createGenerator(out)) {
+                    json.writeStartObject();
+                    json.writeStringField("category", registered.name);
+                    json.writeNumberField("total", photoService.getCategoryMemberCount(categoryPath));
+                    json.writeNumberField("offset", start);
+                    json.writeNumberField("limit", pageSize);
+                    json.writeArrayFieldStart("photos");
+                    int[] members = photoService.getCategoryMemberIndices(categoryPath, snapshot, start, pageSize);
+                    writePhotoInfos(json, snapshot, members, 0, members.length);
+                    json.writeEndArray();
+                    json.writeEndObject();
+                }
+            };
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        }
 
-    private java.util.List<PhotoInfo> getCategoryPhotosWithIndices(String categoryPath) {
-        java.util.List<String> categoryPhotos = photoService.getCategoryPhotos(categoryPath);
-        java.util.List<PhotoInfo> photoInfoList = new java.util.ArrayList<>();
-        
-        for (String photoName : categoryPhotos) {
-            int index = files.indexOf(photoName);
-            if (index >= 0) {
-                photoInfoList.add(new PhotoInfo(photoName, index + 1)); // +1 for 1-based indexing
+        java.util.Map<String, String> categories = photoService.getCategoryDirs();
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = createGenerator(out)) {
+                json.writeStartObject();
+                for (java.util.Map.Entry<String, String> entry : categories.entrySet()) {
+                    json.writeArrayFieldStart(entry.getKey());
+                    // Resolved once per category: asking page by page would walk the members again for every page
+                    int[] members = photoService.getCategoryMemberIndices(entry.getValue(), snapshot, 0, Integer.MAX_VALUE);
+                    for (int from = 0; from < members.length; from += DEFAULT_DETAILS_PAGE) {
+                        writePhotoInfos(json, snapshot, members, from, Math.min(members.length, from + DEFAULT_DETAILS_PAGE));
+                        json.flush();
+                    }
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
             }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private JsonGenerator createGenerator(java.io.OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return json;
+    }
+
+    // Category members come straight from the membership index, as indices into the same snapshot
+    private void writePhotoInfos(JsonGenerator json, CatalogSnapshot snapshot, int[] members, int from, int to) throws IOException {
+        List<String> photos = snapshot.getPhotos();
+        for (int i = from; i < to; i++) {
+            int index = members[i];
+            json.writeObject(new PhotoInfo(photos.get(index), index + 1)); // +1 for 1-based indexing
+        }
+    }
+
+    public static class CategoryInfo {
+        public String name;
+        public String label;
+        public int count;
+
+        public CategoryInfo(String name, String label, int count) {
+            this.name = name;
+            this.label = label;
+            this.count = count;
         }
-        
-        return photoInfoList;
     }
 
     public static class PhotoInfo {
@@ -254,4 +473,48 @@ public class PhotoController {
             return photoNumber;
         }
     }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class PhotoState {
+        public int index;
+        public String filename;
+        public boolean selected;
+        public java.util.Map<String, Boolean> categories;
+        // Only filled in for the single-photo endpoint; the range variant reports counts once
+        public Integer selectedCount;
+        public java.util.Map<String, Integer> categoryCounts;
+        // From the EXIF header, once the metadata index has read it; capture time is camera-local
+        public String camera;
+        public String captureTime;
+        // Burst/near-duplicate stack this photo belongs to (1-based position in the current order)
+        public Integer groupId;
+        public Integer groupSize;
+        public Integer groupPosition;
+
+        public PhotoState(int index, String filename, boolean selected, java.util.Map<String, Boolean> categories) {
+            this.index = index;
+            this.filename = filename;
+            this.selected = selected;
+            this.categories = categories;
+        }
+    }
+
+    public static class StateWindow {
+        public int from;
+        public int to;
+        public int total;
+        public int selectedCount;
+        public java.util.Map<String, Integer> categoryCounts;
+        public java.util.List<PhotoState> photos;
+
+        public StateWindow(int from, int to, int total, int selectedCount,
+                           java.util.Map<String, Integer> categoryCounts, java.util.List<PhotoState> photos) {
+            this.from = from;
+            this.to = to;
+            this.total = total;
+            this.selectedCount = selectedCount;
+            this.categoryCounts = categoryCounts;
+            this.photos = photos;
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package com.photoselect.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.service.ReviewSessions;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Reviewer sessions. A browser opens one, then sends its id in the X-Review-Session header
+ * with select/copy/delete requests and reports where it is, so a reload (or another reviewer
+ * looking at GET /api/sessions) finds its place.
+ */
+@RestController
+@RequestMapping("/api/sessions")
+public class SessionController {
+
+    private final ReviewSessions reviewSessions;
+
+    @Autowired
+    public SessionController(ReviewSessions reviewSessions) {
+        this.reviewSessions = reviewSessions;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReviewSessions.SessionView> open(@RequestParam(required = false) String name) {
+        ReviewSessions.Session session = reviewSessions.open(name);
+        return ResponseEntity.created(URI.create("/api/sessions/" + session.getId()))
+                .body(reviewSessions.view(session));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ReviewSessions.SessionView>> list() {
+        return ResponseEntity.ok(reviewSessions.list());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReviewSessions.SessionView> get(@PathVariable String id) {
+        ReviewSessions.Session session = reviewSessions.get(id);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(reviewSessions.view(session));
+    }
+
+    // Sent on every navigation, so it answers with no body
+    @PutMapping("/{id}/cursor")
+    public ResponseEntity<Void> moveCursor(@PathVariable String id, @RequestParam int index) {
+        ReviewSessions.Session session = reviewSessions.get(id);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!reviewSessions.moveCursor(session, index)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> close(@PathVariable String id) {
+        if (!reviewSessions.close(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
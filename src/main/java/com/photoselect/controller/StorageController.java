@@ -0,0 +1,26 @@
+package com.photoselect.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import com.photoselect.service.BlobStore;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/storage")
+public class StorageController {
+
+    private final BlobStore blobStore;
+
+    @Autowired
+    public StorageController(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    // Blob count and size, linked entries and bytes saved by deduplication (only the mode when it is off)
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(blobStore.getStats());
+    }
+}
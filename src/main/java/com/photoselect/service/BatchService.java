@@ -0,0 +1,267 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.photoselect.exception.PhotoNotFoundException;
+import com.photoselect.exception.PhotoOperationException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Applies select / copyTo / deleteFrom operations to many photos at once, in parallel
+ * but with a bounded number of items touching the disk at any time.
+ */
+@Service
+public class BatchService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchService.class);
+    // Review sessions know the selected folder by this name, categories by their registry name
+    private static final String SELECTED = "selected";
+
+    @Value("${photos.batch.concurrency:8}")
+    private int concurrency;
+
+    @Value("${photos.batch.max-items:50000}")
+    private int maxItems;
+
+    private final PhotoService photoService;
+    private final ReviewSessions reviewSessions;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BatchService(PhotoService photoService, ReviewSessions reviewSessions) {
+        this.photoService = photoService;
+        this.reviewSessions = reviewSessions;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    // Number of items the request resolves to against the current catalog
+    public int countItems(BatchRequest request) {
+        int total = photoService.getSourcePhotos().size();
+        int items = 0;
+        for (BatchOperation operation : operations(request)) {
+            items += operation.resolveIndices(total).size();
+        }
+        return items;
+    }
+
+    // Callers reject oversized requests up front (see countItems); this only guards against misuse.
+    // Picks and removals count for the review session like the single-photo endpoints (null for none).
+    public BatchResult execute(BatchRequest request, String session) {
+        List<String> files = photoService.getSourcePhotos();
+        List<Callable<ItemResult>> tasks = new ArrayList<>();
+        for (BatchOperation operation : operations(request)) {
+            for (int index : operation.resolveIndices(files.size())) {
+                tasks.add(() -> apply(operation, index, files, session));
+            }
+        }
+        if (tasks.size() > maxItems) {
+            throw new IllegalArgumentException("Batch exceeds " + maxItems + " items");
+        }
+
+        Semaphore permits = new Semaphore(concurrency);
+        List<Future<ItemResult>> futures = new ArrayList<>(tasks.size());
+        for (Callable<ItemResult> task : tasks) {
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        List<ItemResult> results = new ArrayList<>(futures.size());
+        for (Future<ItemResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PhotoOperationException("Batch interrupted");
+            } catch (ExecutionException e) {
+                // apply() reports every exception against its own item; only an Error gets here
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        BatchResult batchResult = new BatchResult(results);
+        logger.info("Batch of {} items: {} ok, {} skipped, {} failed",
+                results.size(), batchResult.succeeded, batchResult.skipped, batchResult.failed);
+        return batchResult;
+    }
+
+    private static List<BatchOperation> operations(BatchRequest request) {
+        return request.operations == null ? List.of() : request.operations;
+    }
+
+    private ItemResult apply(BatchOperation operation, int index, List<String> files, String session) {
+        String op = operation.op == null ? "" : operation.op;
+        if (index < 0 || index >= files.size()) {
+            return new ItemResult(op, operation.category, index, null, "error", "Index out of range");
+        }
+        String filename = files.get(index);
+        try {
+            switch (op) {
+                case "select" -> {
+                    CopyJob job = picked(session, SELECTED, filename, () -> photoService.selectPhoto(filename));
+                    return queued(operation, index, filename, job);
+                }
+                case "deleteSelected" -> {
+                    String kept = keptForOthers(session, SELECTED, filename);
+                    if (kept != null) {
+                        return new ItemResult(op, null, index, filename, "skipped", kept);
+                    }
+                    if (photoService.deleteSelectedPhoto(filename) && reviewSessions.isPicked(SELECTED, filename)) {
+                        photoService.selectPhoto(filename);
+                    }
+                    return new ItemResult(op, null, index, filename, "ok", null);
+                }
+                case "copyTo", "deleteFrom" -> {
+                    CategoryRegistry.Category category = photoService.getCategory(operation.category);
+                    if (category == null) {
+                        return new ItemResult(op, operation.category, index, filename, "error", "Invalid category: " + operation.category);
+                    }
+                    if (op.equals("copyTo")) {
+                        CopyJob job = picked(session, category.name, filename,
+                                () -> photoService.copyToCategory(filename, category.dir, category.label));
+                        return queued(operation, index, filename, job);
+                    }
+                    String kept = keptForOthers(session, category.name, filename);
+                    if (kept != null) {
+                        return new ItemResult(op, operation.category, index, filename, "skipped", kept);
+                    }
+                    if (photoService.deleteFromCategory(filename, category.dir, category.label)
+                            && reviewSessions.isPicked(category.name, filename)) {
+                        photoService.copyToCategory(filename, category.dir, category.label);
+                    }
+                    return new ItemResult(op, operation.category, index, filename, "ok", null);
+                }
+                default -> {
+                    return new ItemResult(op, operation.category, index, filename, "error", "Unknown operation: " + op);
+                }
+            }
+        } catch (PhotoNotFoundException | PhotoOperationException e) {
+            return new ItemResult(op, operation.category, index, filename, "error", e.getMessage());
+        } catch (RuntimeException e) {
+            // Unexpected, but still this item's failure: the rest of the batch carries on
+            logger.error("Batch {} of '{}' failed", op, filename, e);
+            return new ItemResult(op, operation.category, index, filename, "error", String.valueOf(e));
+        }
+    }
+
+    // Picked before the copy starts, as in PhotoController, so a concurrent delete can't miss it
+    private CopyJob picked(String session, String destination, String filename, Supplier<CopyJob> copy) {
+        reviewSessions.pick(session, destination, filename);
+        try {
+            return copy.get();
+        } catch (RuntimeException e) {
+            reviewSessions.unpick(session, destination, filename);
+            throw e;
+        }
+    }
+
+    // Same rule as PhotoController: a photo only leaves a destination once no other reviewer picks it
+    private String keptForOthers(String session, String destination, String filename) {
+        List<String> others = reviewSessions.release(session, destination, filename);
+        if (!others.isEmpty()) {
+            return "Kept: also picked by " + String.join(", ", others);
+        }
+        if (reviewSessions.isPicked(destination, filename)) {
+            return "Kept: picked again by another reviewer";
+        }
+        return null;
+    }
+
+    private ItemResult queued(BatchOperation operation, int index, String filename, CopyJob job) {
+        if (job == null) {
+            return new ItemResult(operation.op, operation.category, index, filename, "skipped", "Already present");
+        }
+        if (job.getStatus() == CopyJob.Status.JOURNALED) {
+            return new ItemResult(operation.op, operation.category, index, filename, "ok", "Recorded in decision journal");
+        }
+        ItemResult result = new ItemResult(operation.op, operation.category, index, filename, "ok", null);
+        result.jobId = job.getId();
+        return result;
+    }
+
+    public static class BatchRequest {
+        public List<BatchOperation> operations;
+    }
+
+    // Targets either an explicit list of indices or the half-open range [from, to)
+    public static class BatchOperation {
+        public String op;
+        public String category;
+        public List<Integer> indices;
+        public Integer from;
+        public Integer to;
+
+        List<Integer> resolveIndices(int total) {
+            Set<Integer> resolved = new LinkedHashSet<>();
+            if (indices != null) {
+                resolved.addAll(indices);
+            }
+            if (from != null || to != null) {
+                int start = from == null ? 0 : Math.max(0, from);
+                int end = to == null ? total : Math.min(total, to);
+                for (int i = start; i < end; i++) {
+                    resolved.add(i);
+                }
+            }
+            return new ArrayList<>(resolved);
+        }
+    }
+
+    public static class ItemResult {
+        public String op;
+        public String category;
+        public int index;
+        public String filename;
+        public String status;
+        public String message;
+        public String jobId;
+
+        public ItemResult(String op, String category, int index, String filename, String status, String message) {
+            this.op = op;
+            this.category = category;
+            this.index = index;
+            this.filename = filename;
+            this.status = status;
+            this.message = message;
+        }
+    }
+
+    public static class BatchResult {
+        public int total;
+        public int succeeded;
+        public int skipped;
+        public int failed;
+        public List<ItemResult> results;
+
+        public BatchResult(List<ItemResult> results) {
+            this.results = results;
+            this.total = results.size();
+            for (ItemResult result : results) {
+                switch (result.status) {
+                    case "ok" -> succeeded++;
+                    case "skipped" -> skipped++;
+                    default -> failed++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.photoselect.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.IntConsumer;
+
+/**
+ * Burkhard-Keller tree over 64-bit hashes with Hamming distance. A radius-r search only
+ * descends into children whose edge distance is within r of the query's distance to the
+ * node, so for small radii it touches a small fraction of the tree.
+ */
+final class BkTree {
+    private Node root;
+    private int size;
+
+    void add(long hash, int id) {
+        size++;
+        if (root == null) {
+            root = new Node(hash, id);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = PerceptualHash.distance(hash, node.hash);
+            Node child = node.children[distance];
+            if (child == null) {
+                node.children[distance] = new Node(hash, id);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        root = null;
+        size = 0;
+    }
+
+    // Calls found with the id of every entry within radius of hash
+    void search(long hash, int radius, IntConsumer found) {
+        if (root == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = PerceptualHash.distance(hash, node.hash);
+            if (distance <= radius) {
+                found.accept(node.id);
+            }
+            int from = Math.max(0, distance - radius);
+            int to = Math.min(64, distance + radius);
+            for (int d = from; d <= to; d++) {
+                Node child = node.children[d];
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+    }
+
+    private static final class Node {
+        final long hash;
+        final int id;
+        // Indexed by Hamming distance to this node (0..64)
+        final Node[] children = new Node[65];
+
+        Node(long hash, int id) {
+            this.hash = hash;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed storage for destination files ({@code photos.storage.mode=dedupe}). A source
+ * photo is hashed (SHA-256) while it is first read into the blob directory, and every entry in
+ * the selected and category folders is then a hard link to that one blob. Where hard links are
+ * not supported it falls back to a copy-on-write clone, and across filesystems to a plain copy;
+ * the first method that works is remembered per destination folder.
+ *
+ * <p>Hard links only work when the blob directory is on the same filesystem as the destinations,
+ * and it must not be inside a synced folder (a sync client uploads each link as a file of its own).
+ * Hard-linked entries share one file, so destination photos must be replaced, never edited in
+ * place; that includes their attributes. Blobs nobody links to any more (all entries deleted)
+ * are removed on startup.
+ */
+@Service
+public class BlobStore {
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+    public static final String MODE_COPY = "copy";
+    public static final String MODE_DEDUPE = "dedupe";
+    private static final String INCOMING_PREFIX = ".incoming-";
+    // Files younger than this may belong to an ingest still in progress; the orphan sweep leaves them alone
+    private static final long ORPHAN_GRACE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    enum Method { HARD_LINK, CLONE, COPY }
+
+    @Value("${photos.storage.mode:copy}")
+    private String mode;
+
+    @Value("${photos.storage.blob-dir:${user.home}/.photoselect/blobs}")
+    private String blobDir;
+
+    @Value("${photos.dest:}")
+    private String destDir;
+
+    @Value("${photos.storage.hash-file:${user.home}/.photoselect/blob-hashes.log}")
+    private String hashFile;
+
+    // source path|mtime|size -> content hash, so an unchanged source is never read twice
+    private final Map<String, String> hashes = new ConcurrentHashMap<>();
+    private final Map<Path, Method> methodByDir = new ConcurrentHashMap<>();
+    // Blobs a materialize is about to link -> how many; the orphan sweep leaves these alone
+    private final Map<Path, Integer> inUse = new ConcurrentHashMap<>();
+    private BufferedWriter hashLog;
+
+    private final LongAdder ingested = new LongAdder();
+    private final LongAdder ingestedBytes = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder linked = new LongAdder();
+    private final LongAdder cloned = new LongAdder();
+    private final LongAdder clonedBytes = new LongAdder();
+    private final LongAdder copied = new LongAdder();
+    private final LongAdder copiedBytes = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (!destDir.isBlank() && Paths.get(blobDir).toAbsolutePath().normalize()
+                .startsWith(Paths.get(destDir).toAbsolutePath().normalize())) {
+            // A sync client uploads every blob as well as each entry linked to it
+            logger.warn("Blob directory {} is inside the destination folder {}; move it out of any synced folder",
+                    blobDir, destDir);
+        }
+        loadHashes();
+        Thread.ofVirtual().name("blob-sweeper").start(this::removeOrphans);
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (hashLog != null) {
+            try {
+                hashLog.close();
+            } catch (IOException e) {
+                logger.debug("Error closing blob hash log: {}", e.getMessage());
+            }
+            hashLog = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return MODE_DEDUPE.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Puts the content of {@code source} at {@code target}, linking to (or cloning) its blob and
+     * storing the blob first if this content has not been seen yet. Returns the bytes actually
+     * written: the source size when a blob was stored or a copy made, 0 for a link or clone.
+     */
+    public long materialize(Path source, Path target) throws IOException {
+        Path blob = knownBlob(source);
+        if (blob != null) {
+            hold(blob);
+            try {
+                // Checked while held, so the orphan sweep can't take it before it is linked
+                if (Files.exists(blob)) {
+                    reused.increment();
+                    return place(blob, target);
+                }
+            } finally {
+                release(blob);
+            }
+        }
+        blob = ingest(source);
+        try {
+            return Files.size(blob) + place(blob, target);
+        } finally {
+            release(blob);
+        }
+    }
+
+    // Links (or clones, or copies) the blob to the target; returns the bytes copied
+    private long place(Path blob, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        Path dir = target.toAbsolutePath().getParent();
+        Method method = methodByDir.getOrDefault(dir, Method.HARD_LINK);
+        if (method == Method.HARD_LINK) {
+            try {
+                link(target, blob);
+                linked.increment();
+                return 0;
+            } catch (NoSuchFileException | AccessDeniedException | FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // Another filesystem than the blob directory, or one without hard links
+                logger.info("Hard links not possible in {} ({}), trying clones", dir, e.getMessage());
+                method = Method.CLONE;
+                methodByDir.put(dir, method);
+            }
+        }
+        long size = Files.size(blob);
+        if (method == Method.CLONE) {
+            if (clone(blob, target)) {
+                cloned.increment();
+                clonedBytes.add(size);
+                return 0;
+            }
+            if (!Files.exists(blob)) {
+                // Failed for want of the blob, not of clone support
+                throw new NoSuchFileException(blob.toString());
+            }
+            logger.info("Clones not possible in {}, copying", dir);
+            methodByDir.put(dir, Method.COPY);
+        }
+        Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        copied.increment();
+        copiedBytes.add(size);
+        return size;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", isEnabled() ? MODE_DEDUPE : MODE_COPY);
+        if (!isEnabled()) {
+            return stats;
+        }
+        long blobs = 0;
+        long blobBytes = 0;
+        long entries = 0;
+        long linkedSaved = 0;
+        long orphans = 0;
+        long orphanBytes = 0;
+        boolean linkCounts = true;
+        Path root = Paths.get(blobDir);
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path blob : (Iterable<Path>) paths.filter(BlobStore::isBlob)::iterator) {
+                    long size = Files.size(blob);
+                    blobs++;
+                    blobBytes += size;
+                    if (!linkCounts) {
+                        continue;
+                    }
+                    try {
+                        // The blob's own name is one link and each destination entry another; all
+                        // entries but the first would have been a full copy without the store
+                        int links = (Integer) Files.getAttribute(blob, "unix:nlink");
+                        entries += links - 1;
+                        if (links == 1) {
+                            orphans++;
+                            orphanBytes += size;
+                        } else {
+                            linkedSaved += size * (links - 2);
+                        }
+                    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                        linkCounts = false;
+                    }
+                }
+            } catch (IOException | UncheckedIOException e) {
+                logger.warn("Failed to scan blob directory {}: {}", root, e.getMessage());
+            }
+        }
+        stats.put("blobDir", root.toString());
+        stats.put("blobs", blobs);
+        stats.put("blobBytes", blobBytes);
+        if (linkCounts) {
+            stats.put("linkedEntries", entries);
+            stats.put("orphanBlobs", orphans);
+            stats.put("orphanBytes", orphanBytes);
+        }
+        // Clones share blocks too, but the filesystem doesn't show that, so they count from this run
+        stats.put("bytesSaved", linkedSaved + clonedBytes.sum());
+        stats.put("ingested", ingested.sum());
+        stats.put("ingestedBytes", ingestedBytes.sum());
+        stats.put("reused", reused.sum());
+        stats.put("hardLinked", linked.sum());
+        stats.put("cloned", cloned.sum());
+        stats.put("clonedBytes", clonedBytes.sum());
+        stats.put("copied", copied.sum());
+        stats.put("copiedBytes", copiedBytes.sum());
+        Map<String, String> methods = new TreeMap<>();
+        methodByDir.forEach((dir, method) -> methods.put(dir.toString(), method.name().toLowerCase()));
+        stats.put("fallbacks", methods);
+        return stats;
+    }
+
+    // Where the blob for an unchanged source that has been stored before is (it may since have
+    // been swept), or null
+    private Path knownBlob(Path source) throws IOException {
+        String hash = hashes.get(sourceKey(source));
+        return hash == null ? null : blobPath(hash, source);
+    }
+
+    // Blobs are held from before they are checked (or stored) until their entry is linked
+    void hold(Path blob) {
+        inUse.merge(blob, 1, Integer::sum);
+    }
+
+    void release(Path blob) {
+        inUse.computeIfPresent(blob, (path, holders) -> holders == 1 ? null : holders - 1);
+    }
+
+    // Streams the source into the blob directory once, hashing it on the way; returns the blob held
+    private Path ingest(Path source) throws IOException {
+        String key = sourceKey(source);
+        Path root = Files.createDirectories(Paths.get(blobDir));
+        Path incoming = root.resolve(INCOMING_PREFIX + UUID.randomUUID());
+        MessageDigest digest = sha256();
+        try {
+            try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+                Files.copy(in, incoming);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path blob = blobPath(hash, source);
+            hold(blob);
+            try {
+                Files.createDirectories(blob.getParent());
+                try {
+                    Files.move(incoming, blob);
+                    ingested.increment();
+                    ingestedBytes.add(Files.size(blob));
+                } catch (FileAlreadyExistsException e) {
+                    // Same content under another source name (or a concurrent ingest); keep the existing blob
+                    Files.delete(incoming);
+                    reused.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                release(blob);
+                throw e;
+            }
+            hashes.put(key, hash);
+            appendHash(key, hash);
+            return blob;
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+    }
+
+    void link(Path target, Path blob) throws IOException {
+        Files.createLink(target, blob);
+    }
+
+    // Copy-on-write clone through the platform's cp (APFS clonefile on macOS, FICLONE reflink on Linux)
+    boolean clone(Path blob, Path target) {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        List<String> command;
+        if (os.contains("mac")) {
+            command = List.of("cp", "-c", blob.toString(), target.toString());
+        } else if (os.contains("linux")) {
+            command = List.of("cp", "--reflink=always", blob.toString(), target.toString());
+        } else {
+            return false;
+        }
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (process.waitFor() == 0) {
+                return true;
+            }
+        } catch (IOException e) {
+            logger.debug("Clone of {} failed: {}", blob, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException ignored) {
+            // the copy that follows replaces it anyway
+        }
+        return false;
+    }
+
+    private Path blobPath(String hash, Path source) {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot > 0 ? name.substring(dot).toLowerCase() : "";
+        return Paths.get(blobDir, hash.substring(0, 2), hash + extension);
+    }
+
+    private static boolean isBlob(Path path) {
+        return Files.isRegularFile(path) && !path.getFileName().toString().startsWith(".");
+    }
+
+    private static String sourceKey(Path source) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        return source.toAbsolutePath() + "|" + attributes.lastModifiedTime().toMillis() + "|" + attributes.size();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void loadHashes() {
+        Path log = Paths.get(hashFile);
+        if (!Files.exists(log)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0) {
+                    hashes.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+            logger.info("Loaded {} blob hashes from {}", hashes.size(), log);
+        } catch (IOException e) {
+            logger.warn("Failed to read blob hashes {}: {}", log, e.getMessage());
+        }
+    }
+
+    // One "source key<TAB>hash" per line; a lost line only means that source is read once more
+    private synchronized void appendHash(String key, String hash) {
+        try {
+            if (hashLog == null) {
+                Path log = Paths.get(hashFile);
+                if (log.getParent() != null) {
+                    Files.createDirectories(log.getParent());
+                }
+                hashLog = Files.newBufferedWriter(log, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            hashLog.write(key + "\t" + hash);
+            hashLog.newLine();
+            hashLog.flush();
+        } catch (IOException e) {
+            logger.error("Failed to write blob hashes {}: {}", hashFile, e.getMessage());
+        }
+    }
+
+    // Removes blobs no destination links to any more, and leftovers of interrupted ingests
+    void removeOrphans() {
+        Path root = Paths.get(blobDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - ORPHAN_GRACE_MILLIS;
+        int removed = 0;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                try {
+                    if (Files.getLastModifiedTime(path).toMillis() > cutoff) {
+                        continue;
+                    }
+                    boolean incoming = path.getFileName().toString().startsWith(INCOMING_PREFIX);
+                    if (incoming ? Files.deleteIfExists(path) : deleteOrphan(path)) {
+                        removed++;
+                    }
+                } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                    return; // no link counts here, so orphans can't be told apart
+                } catch (IOException e) {
+                    logger.debug("Skipping blob {}: {}", path, e.getMessage());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Failed to sweep blob directory {}: {}", root, e.getMessage());
+        }
+        if (removed > 0) {
+            logger.info("Removed {} unreferenced blobs from {}", removed, root);
+        }
+    }
+
+    // Decided and deleted under the blob's entry in inUse, so a materialize can't hold it halfway through
+    private boolean deleteOrphan(Path blob) throws IOException {
+        boolean[] deleted = new boolean[1];
+        try {
+            inUse.compute(blob, (path, holders) -> {
+                if (holders == null) {
+                    try {
+                        if ((Integer) Files.getAttribute(path, "unix:nlink") == 1) {
+                            Files.delete(path);
+                            deleted[0] = true;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return holders;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return deleted[0];
+    }
+}
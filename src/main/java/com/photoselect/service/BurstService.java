@@ -0,0 +1,294 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Groups bursts and near-duplicates so the UI can treat them as one stack. A background
+ * pipeline hashes every source photo (dHash, on all cores, persisted with the metadata
+ * cache); each new hash is looked up in a BK-tree and merged with its neighbours within
+ * {@code photos.groups.max-distance} bits via union-find. Only photos taken by the same camera
+ * within {@code photos.groups.max-gap-seconds} of each other are merged, so a backdrop shot all
+ * evening does not chain every guest into one stack; photos without a capture time stay single.
+ */
+@Service
+public class BurstService {
+    private static final Logger logger = LoggerFactory.getLogger(BurstService.class);
+    private static final int CHUNK_SIZE = 1000;
+
+    private final PhotoCatalog catalog;
+    private final MetadataService metadataService;
+    private ForkJoinPool pool;
+    private ExecutorService background;
+
+    // Only touched from the background thread
+    private final BkTree tree = new BkTree();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    // The file version (mtime + size) each photo was hashed from, to notice photos replaced in place
+    private final List<PhotoMetadata> hashedFrom = new ArrayList<>();
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+    private int[] parent = new int[1024];
+
+    private volatile Grouping grouping = new Grouping(Map.of(), List.of());
+    private final AtomicInteger hashedCount = new AtomicInteger();
+    private volatile int pendingCount;
+
+    @Value("${photos.groups.max-distance:10}")
+    private int maxDistance;
+
+    @Value("${photos.groups.max-gap-seconds:10}")
+    private long maxGapSeconds;
+
+    // 0 = one thread per core
+    @Value("${photos.groups.threads:0}")
+    private int threads;
+
+    public BurstService(PhotoCatalog catalog, MetadataService metadataService) {
+        this.catalog = catalog;
+        this.metadataService = metadataService;
+    }
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        background = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "burst-grouping");
+            t.setDaemon(true);
+            return t;
+        });
+        catalog.addListener(snapshot -> background.execute(this::update));
+        background.execute(this::update);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        background.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    // Groups of two or more photos as indices into the given snapshot, ordered by first photo
+    public List<Group> getGroups(CatalogSnapshot snapshot) {
+        Grouping current = grouping;
+        List<Group> groups = new ArrayList<>();
+        for (int id = 0; id < current.members.size(); id++) {
+            int[] indices = indicesOf(current.members.get(id), snapshot);
+            if (indices.length >= 2) {
+                groups.add(new Group(id, indices));
+            }
+        }
+        groups.sort(Comparator.comparingInt(group -> group.indices[0]));
+        return groups;
+    }
+
+    // The group a photo belongs to, or null if it has no near-duplicates (or is not hashed yet)
+    public Group getGroup(String photo, CatalogSnapshot snapshot) {
+        Grouping current = grouping;
+        Integer id = current.groupOf.get(photo);
+        if (id == null) {
+            return null;
+        }
+        int[] indices = indicesOf(current.members.get(id), snapshot);
+        return indices.length >= 2 ? new Group(id, indices) : null;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("hashed", hashedCount.get());
+        status.put("pending", pendingCount);
+        status.put("failed", failed.size());
+        status.put("maxDistance", maxDistance);
+        status.put("maxGapSeconds", maxGapSeconds);
+        status.put("groups", grouping.members.size());
+        return status;
+    }
+
+    private static int[] indicesOf(List<String> members, CatalogSnapshot snapshot) {
+        return members.stream().mapToInt(snapshot::indexOf).filter(index -> index >= 0).sorted().toArray();
+    }
+
+    private void update() {
+        List<String> photos = catalog.current().getPhotos();
+        if (photos.stream().anyMatch(this::isReplaced)) {
+            // The tree and union-find can't drop a photo, so start over; unchanged photos keep
+            // their hash in the metadata cache and only cost an insert
+            logger.info("Source photos changed on disk, regrouping");
+            reset();
+        }
+        List<String> todo = photos.stream()
+                .filter(photo -> !ids.containsKey(photo) && !failed.contains(photo))
+                .toList();
+        if (todo.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Chunks let groups show up (and hashes get persisted) while a large first run is going
+        for (int from = 0; from < todo.size(); from += CHUNK_SIZE) {
+            pendingCount = todo.size() - from;
+            List<String> chunk = todo.subList(from, Math.min(todo.size(), from + CHUNK_SIZE));
+            Map<String, PhotoMetadata> hashes = new ConcurrentHashMap<>();
+            try {
+                pool.submit(() -> chunk.parallelStream().forEach(photo -> {
+                    PhotoMetadata hashed = hash(photo);
+                    if (hashed != null) {
+                        hashes.put(photo, hashed);
+                    }
+                })).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pendingCount = 0;
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Hashing failed: {}", e.getCause().getMessage());
+                pendingCount = 0;
+                return;
+            }
+            insert(chunk, hashes);
+            grouping = buildGrouping();
+            metadataService.flush();
+        }
+        pendingCount = 0;
+        logger.info("Hashed {} photos in {} ms; {} groups of near-duplicates among {} photos",
+                todo.size(), (System.nanoTime() - start) / 1_000_000, grouping.members.size(), names.size());
+    }
+
+    // Insertion is cheap compared to hashing, so the tree and union-find stay single-threaded
+    private void insert(List<String> photos, Map<String, PhotoMetadata> hashes) {
+        for (String photo : photos) {
+            PhotoMetadata hashed = hashes.get(photo);
+            if (hashed == null) {
+                failed.add(photo);
+                continue;
+            }
+            int id = names.size();
+            names.add(photo);
+            hashedFrom.add(hashed);
+            ids.put(photo, id);
+            if (id >= parent.length) {
+                parent = Arrays.copyOf(parent, parent.length * 2);
+            }
+            parent[id] = id;
+            tree.search(hashed.getHash(), maxDistance, other -> {
+                if (sameMoment(hashed, hashedFrom.get(other))) {
+                    union(id, other);
+                }
+            });
+            tree.add(hashed.getHash(), id);
+            hashedCount.incrementAndGet();
+        }
+    }
+
+    // Looking alike is not enough: near-duplicates are shot moments apart, on the same camera
+    private boolean sameMoment(PhotoMetadata a, PhotoMetadata b) {
+        if (!a.hasCaptureTime() || !b.hasCaptureTime()
+                || Math.abs(a.getCaptureTime() - b.getCaptureTime()) > maxGapSeconds * 1000) {
+            return false;
+        }
+        return a.getCamera() == null || b.getCamera() == null || a.getCamera().equals(b.getCamera());
+    }
+
+    // Hashed from another version of the file than the metadata cache now describes
+    private boolean isReplaced(String photo) {
+        Integer id = ids.get(photo);
+        if (id == null) {
+            return false;
+        }
+        PhotoMetadata hashed = hashedFrom.get(id);
+        PhotoMetadata current = metadataService.get(photo);
+        return current != null && !current.matches(hashed.getMtime(), hashed.getSize());
+    }
+
+    private void reset() {
+        tree.clear();
+        ids.clear();
+        names.clear();
+        hashedFrom.clear();
+        failed.clear();
+        hashedCount.set(0);
+        grouping = new Grouping(Map.of(), List.of());
+    }
+
+    // The photo's metadata with its hash, computed now unless the cache has it for this file version
+    private PhotoMetadata hash(String photo) {
+        PhotoMetadata metadata = metadataService.getCurrent(photo);
+        if (metadata == null) {
+            return null;
+        }
+        if (metadata.hasHash()) {
+            return metadata;
+        }
+        try {
+            long hash = PerceptualHash.of(catalog.resolve(photo));
+            metadataService.putHash(photo, metadata, hash);
+            return metadata.withHash(hash);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not hash {}: {}", photo, e.getMessage());
+            return null;
+        }
+    }
+
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private Grouping buildGrouping() {
+        Map<Integer, List<String>> byRoot = new HashMap<>();
+        for (int id = 0; id < names.size(); id++) {
+            byRoot.computeIfAbsent(find(id), root -> new ArrayList<>()).add(names.get(id));
+        }
+        Map<String, Integer> groupOf = new HashMap<>();
+        List<List<String>> members = new ArrayList<>();
+        for (List<String> group : byRoot.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            int id = members.size();
+            members.add(List.copyOf(group));
+            group.forEach(photo -> groupOf.put(photo, id));
+        }
+        return new Grouping(groupOf, members);
+    }
+
+    private static final class Grouping {
+        final Map<String, Integer> groupOf;
+        final List<List<String>> members;
+
+        Grouping(Map<String, Integer> groupOf, List<List<String>> members) {
+            this.groupOf = groupOf;
+            this.members = members;
+        }
+    }
+
+    public static class Group {
+        public int id;
+        public int size;
+        public int[] indices;
+
+        public Group(int id, int[] indices) {
+            this.id = id;
+            this.size = indices.length;
+            this.indices = indices;
+        }
+    }
+}
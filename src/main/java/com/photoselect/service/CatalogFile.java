@@ -0,0 +1,144 @@
+package com.photoselect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Binary snapshot of the last source scan, so a restart only has to stat each folder
+ * instead of listing a (possibly remote) tree again.
+ *
+ * Layout (big-endian): magic, format version, source root, extensions, folder count, then
+ * per folder: path, mtime, listedAt, file names, subfolder names. Strings are an int byte
+ * length followed by UTF-8; lists are an int count followed by their strings.
+ */
+final class CatalogFile {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogFile.class);
+    private static final int MAGIC = 0x50534354; // "PSCT"
+    private static final int FORMAT_VERSION = 1;
+
+    private CatalogFile() {
+    }
+
+    // Returns null if the file is missing, unreadable or was written for another root/extension set
+    static Map<String, SourceScanner.DirEntry> read(Path file, Path root, Set<String> extensions) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                logger.info("Ignoring catalog snapshot {}: unknown format", file);
+                return null;
+            }
+            String snapshotRoot = readString(buf);
+            String snapshotExtensions = readString(buf);
+            if (!snapshotRoot.equals(root.toAbsolutePath().toString())
+                    || !snapshotExtensions.equals(String.join(",", extensions))) {
+                logger.info("Ignoring catalog snapshot {}: written for {} ({})", file, snapshotRoot, snapshotExtensions);
+                return null;
+            }
+            int dirCount = buf.getInt();
+            Map<String, SourceScanner.DirEntry> tree = new HashMap<>(dirCount * 2);
+            for (int i = 0; i < dirCount; i++) {
+                String dir = readString(buf);
+                long mtime = buf.getLong();
+                long listedAt = buf.getLong();
+                List<String> files = readStrings(buf);
+                List<String> subdirs = readStrings(buf);
+                tree.put(dir, new SourceScanner.DirEntry(mtime, listedAt, files, subdirs));
+            }
+            return tree;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Could not read catalog snapshot {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    static void write(Path file, Path root, Set<String> extensions, Map<String, SourceScanner.DirEntry> tree) {
+        try {
+            writeAtomically(file, out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, root.toAbsolutePath().toString());
+                writeString(out, String.join(",", extensions));
+                out.writeInt(tree.size());
+                for (Map.Entry<String, SourceScanner.DirEntry> entry : tree.entrySet()) {
+                    SourceScanner.DirEntry dir = entry.getValue();
+                    writeString(out, entry.getKey());
+                    out.writeLong(dir.mtime);
+                    out.writeLong(dir.listedAt);
+                    writeStrings(out, dir.files);
+                    writeStrings(out, dir.subdirs);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not write catalog snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    // Writes to a sibling temp file and moves it into place, so readers never see a partial file
+    static void writeAtomically(Path file, Body body) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            body.write(out);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0 || length > buf.remaining()) {
+            throw new IllegalArgumentException("corrupt string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(ByteBuffer buf) {
+        int count = buf.getInt();
+        if (count < 0 || count > buf.remaining() / 4) {
+            throw new IllegalArgumentException("corrupt list length " + count);
+        }
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(buf));
+        }
+        return strings;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,188 @@
+package com.photoselect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Immutable, versioned view of the source photos. Within one layout, index i always
+ * refers to the same photo: new photos are appended and removed ones keep their slot.
+ * Only an explicit change of order (e.g. by name to by capture time) starts a new layout.
+ *
+ * Photos are named by their path relative to the source folder ("cardA/IMG_0001.jpg").
+ * Destination folders are flat, so a nested photo is copied under its
+ * {@link #destinationName(String) destination name} ("cardA__IMG_0001.jpg"); photos directly in
+ * the source folder keep their own name, as they always have. Nested names are escaped so no two
+ * of them collide, but one can still equal a top-level name (a file literally called
+ * "cardA__IMG_0001.jpg"); the top-level photo keeps it and the nested one is copied under
+ * "cardA%2FIMG_0001.jpg" instead (see {@link #destinationOf(String)}).
+ */
+public final class CatalogSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+    public static final String ORDER_NAME = "name";
+    public static final String ORDER_CAPTURE_TIME = "capture-time";
+
+    private final long version;
+    private final long layout;
+    private final String order;
+    private final List<String> photos;
+    // Keyed by destination name, which is what the destination folders contain
+    private final Map<String, Integer> index;
+    // Nested photos whose destination name is taken by a top-level photo -> the name they use instead
+    private final Map<String, String> renamed;
+
+    private CatalogSnapshot(long version, long layout, String order, List<String> photos, Map<String, Integer> index,
+                            Map<String, String> renamed) {
+        this.version = version;
+        this.layout = layout;
+        this.order = order;
+        this.photos = photos;
+        this.index = index;
+        this.renamed = renamed;
+    }
+
+    public static CatalogSnapshot of(long version, List<String> photos) {
+        return of(version, 1, ORDER_NAME, photos);
+    }
+
+    static CatalogSnapshot of(long version, long layout, String order, List<String> photos) {
+        Map<String, Integer> index = new HashMap<>(photos.size() * 2);
+        Map<String, String> renamed = new HashMap<>();
+        for (int i = 0; i < photos.size(); i++) {
+            putIndex(index, renamed, photos, i);
+        }
+        return new CatalogSnapshot(version, layout, order, List.copyOf(photos), index, renamed);
+    }
+
+    /**
+     * The flat file name a photo is copied under, unless this catalog renames it (see
+     * {@link #destinationOf(String)}). A top-level photo keeps its name; in a nested one folder
+     * separators become "__", an underscore next to another one or ending a folder name is
+     * escaped as "%5F" (and '%' as "%25"), so a run of two underscores always means a separator
+     * and no two nested photos share a name.
+     */
+    public static String destinationName(String photo) {
+        return photo.indexOf('/') < 0 ? photo : encode(photo, "__");
+    }
+
+    private static String encode(String photo, String separator) {
+        StringBuilder name = new StringBuilder(photo.length() + 8);
+        for (int i = 0; i < photo.length(); i++) {
+            char c = photo.charAt(i);
+            if (c == '/') {
+                name.append(separator);
+            } else if (c == '%') {
+                name.append("%25");
+            } else if (c == '_' && isAmbiguousUnderscore(photo, i)) {
+                name.append("%5F");
+            } else {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    private static boolean isAmbiguousUnderscore(String photo, int i) {
+        char next = i + 1 < photo.length() ? photo.charAt(i + 1) : 0;
+        return next == '_' || next == '/' || (i > 0 && photo.charAt(i - 1) == '_');
+    }
+
+    // Only a nested and a top-level photo can want the same name. The top-level one always gets it
+    // (it may have been copied under it before subfolders were supported), even if it is added
+    // later; the nested one moves to a name with "%2F" separators, which no escaped name contains.
+    private static void putIndex(Map<String, Integer> index, Map<String, String> renamed, List<String> photos, int i) {
+        String photo = photos.get(i);
+        String name = destinationName(photo);
+        Integer holder = index.putIfAbsent(name, i);
+        if (holder == null) {
+            return;
+        }
+        int nested = i;
+        if (photo.indexOf('/') < 0) {
+            index.put(name, i);
+            nested = holder;
+            logger.warn("Photo '{}' takes destination name '{}' from '{}'; files already copied under it now count as '{}'",
+                    photo, name, photos.get(holder), photo);
+        }
+        // Top-level files may be called anything, including a "%2F" name; count up until one is free
+        for (int attempt = 0; ; attempt++) {
+            String alternate = alternateName(photos.get(nested), attempt);
+            if (index.putIfAbsent(alternate, nested) == null) {
+                renamed.put(photos.get(nested), alternate);
+                return;
+            }
+        }
+    }
+
+    // "cardA%2FIMG_0001.jpg", then "cardA%2FIMG_0001%231.jpg", "cardA%2FIMG_0001%232.jpg", ...
+    private static String alternateName(String photo, int attempt) {
+        String name = encode(photo, "%2F");
+        if (attempt == 0) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        int at = dot > name.lastIndexOf("%2F") ? dot : name.length();
+        return name.substring(0, at) + "%23" + attempt + name.substring(at);
+    }
+
+    // Appended names must not already be in the catalog
+    CatalogSnapshot append(List<String> added) {
+        List<String> next = new ArrayList<>(photos.size() + added.size());
+        next.addAll(photos);
+        next.addAll(added);
+        Map<String, Integer> nextIndex = new HashMap<>(index);
+        Map<String, String> nextRenamed = new HashMap<>(renamed);
+        for (int i = photos.size(); i < next.size(); i++) {
+            putIndex(nextIndex, nextRenamed, next, i);
+        }
+        return new CatalogSnapshot(version + 1, layout, order, Collections.unmodifiableList(next), nextIndex, nextRenamed);
+    }
+
+    // Same photos in a new order; indices from the previous layout are no longer valid
+    CatalogSnapshot reorder(String order, List<String> ordered) {
+        return of(version + 1, layout + 1, order, ordered);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLayout() {
+        return layout;
+    }
+
+    public String getOrder() {
+        return order;
+    }
+
+    public List<String> getPhotos() {
+        return photos;
+    }
+
+    public int size() {
+        return photos.size();
+    }
+
+    public boolean contains(String photo) {
+        return indexOf(photo) >= 0;
+    }
+
+    public int indexOf(String photo) {
+        Integer i = index.get(destinationOf(photo));
+        // A photo not in the catalog may still share a name with one that is
+        return i != null && photos.get(i).equals(photo) ? i : -1;
+    }
+
+    // The file name the photo has in destination folders
+    public String destinationOf(String photo) {
+        String name = renamed.get(photo);
+        return name != null ? name : destinationName(photo);
+    }
+
+    // Source index of a file found in a destination folder; -1 if it is not a source photo
+    public int indexOfDestination(String name) {
+        Integer i = index.get(name);
+        return i == null ? -1 : i;
+    }
+}
@@ -0,0 +1,109 @@
+package com.photoselect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * The event categories photos can be sorted into, read once from {@code photos.categories.<name>=<folder>}
+ * in configuration order. Names are what the API and UI use ({@code /api/copyTo/{name}/{index}});
+ * lookups by name are a single hash map probe, however many categories an event has.
+ */
+@Service
+public class CategoryRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(CategoryRegistry.class);
+    // Names end up in URLs and JSON keys; "selected" is the main destination's name everywhere
+    private static final Pattern VALID_NAME = Pattern.compile("[a-z0-9][a-z0-9_-]*");
+    private static final String RESERVED_NAME = "selected";
+    // The fixed categories configured as photos.dest.<name> before photos.categories existed
+    private static final List<String> LEGACY_NAMES =
+            List.of("haldi", "mehendi", "tilak", "jaimala", "shaadi", "vidai", "barat", "matkor");
+
+    private final Map<String, Category> categories;
+    private final Map<String, String> dirs;
+
+    public CategoryRegistry(Environment environment) {
+        Map<String, String> configured = new LinkedHashMap<>(Binder.get(environment)
+                .bind("photos.categories", Bindable.mapOf(String.class, String.class))
+                .orElseGet(Collections::emptyMap));
+        bindLegacy(environment, configured);
+        Map<String, Category> byName = new LinkedHashMap<>();
+        configured.forEach((key, dir) -> {
+            String name = key.toLowerCase(Locale.ROOT);
+            if (!VALID_NAME.matcher(name).matches() || name.equals(RESERVED_NAME)) {
+                logger.warn("Ignoring category '{}': names are lower-case letters, digits, '-' and '_', and not '{}'",
+                        key, RESERVED_NAME);
+            } else if (dir == null || dir.isBlank()) {
+                logger.warn("Ignoring category '{}': no folder configured", key);
+            } else {
+                byName.put(name, new Category(name, label(name), dir.trim()));
+            }
+        });
+        if (byName.isEmpty()) {
+            logger.warn("No categories configured (photos.categories.<name>=<folder>)");
+        }
+        this.categories = Collections.unmodifiableMap(byName);
+        Map<String, String> dirsByName = new LinkedHashMap<>();
+        byName.values().forEach(category -> dirsByName.put(category.name, category.dir));
+        this.dirs = Collections.unmodifiableMap(dirsByName);
+        logger.info("Loaded {} categories: {}", categories.size(), categories.keySet());
+    }
+
+    // Older configurations keep working; photos.categories.<name> wins where both are set
+    private static void bindLegacy(Environment environment, Map<String, String> configured) {
+        for (String name : LEGACY_NAMES) {
+            String dir = environment.getProperty("photos.dest." + name);
+            if (dir == null) {
+                continue;
+            }
+            if (configured.keySet().stream().anyMatch(name::equalsIgnoreCase)) {
+                logger.warn("Ignoring photos.dest.{}: photos.categories.{} is set", name, name);
+            } else {
+                logger.warn("photos.dest.{} is deprecated; rename it to photos.categories.{}", name, name);
+                configured.put(name, dir);
+            }
+        }
+    }
+
+    // Null if there is no such category; names are matched case-insensitively
+    public Category get(String name) {
+        return name == null ? null : categories.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public Collection<Category> all() {
+        return categories.values();
+    }
+
+    // Name -> folder, in configuration order
+    public Map<String, String> dirs() {
+        return dirs;
+    }
+
+    public int size() {
+        return categories.size();
+    }
+
+    // "guest-group_2" -> "Guest group 2"
+    static String label(String name) {
+        String words = name.replace('-', ' ').replace('_', ' ');
+        return Character.toUpperCase(words.charAt(0)) + words.substring(1);
+    }
+
+    public static class Category {
+        public final String name;
+        public final String label;
+        public final String dir;
+
+        Category(String name, String label, String dir) {
+            this.name = name;
+            this.label = label;
+            this.dir = dir;
+        }
+    }
+}
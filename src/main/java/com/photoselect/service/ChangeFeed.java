@@ -0,0 +1,224 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Turns membership and catalog changes into state updates for connected clients. Changes are
+ * collected for {@code photos.events.coalesce-millis} and sent as one update, so a batch copy
+ * of 500 photos costs a handful of messages instead of 500 (and a photo selected and
+ * unselected within the window only shows its final state).
+ */
+@Service
+public class ChangeFeed {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+    public static final String SELECTED = "selected";
+
+    private final PhotoService photoService;
+    private final MembershipIndex membershipIndex;
+    private final PhotoCatalog catalog;
+    private final List<Consumer<Update>> subscribers = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    // Guarded by this; swapped out as a whole when an update is sent
+    private Map<String, Boolean> pendingChanges = new LinkedHashMap<>();
+    private Map<String, Integer> pendingDeltas = new LinkedHashMap<>();
+    private Set<String> pendingResets = new HashSet<>();
+    private boolean catalogChanged;
+    private boolean flushScheduled;
+
+    @Value("${photos.events.coalesce-millis:250}")
+    private long coalesceMillis;
+
+    public ChangeFeed(PhotoService photoService, MembershipIndex membershipIndex, PhotoCatalog catalog) {
+        this.photoService = photoService;
+        this.membershipIndex = membershipIndex;
+        this.catalog = catalog;
+    }
+
+    @PostConstruct
+    void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        membershipIndex.addListener(new MembershipIndex.ChangeListener() {
+            @Override
+            public void membershipChanged(String dir, String filename, boolean member) {
+                onMembershipChanged(dir, filename, member);
+            }
+
+            @Override
+            public void destinationReset(String dir) {
+                onDestinationReset(dir);
+            }
+        });
+        catalog.addListener(snapshot -> onCatalogChanged());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Subscribers are called one at a time from the feed thread, in order, and must not block:
+    // a slow subscriber would delay every other one (EventController queues per client)
+    public void subscribe(Consumer<Update> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<Update> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    // Full counts for a client that is just connecting; later updates carry absolute counts
+    // for every destination they touch, so the two never drift apart.
+    public Update snapshot() {
+        Update update = new Update(catalog.current());
+        update.reload = true;
+        update.counts.putAll(countsOf(destinationNames().values()));
+        return update;
+    }
+
+    private synchronized void onMembershipChanged(String dir, String filename, boolean member) {
+        String destination = destinationNames().get(dir);
+        if (destination == null) {
+            return;
+        }
+        pendingChanges.put(destination + "/" + filename, member);
+        pendingDeltas.merge(destination, member ? 1 : -1, Integer::sum);
+        scheduleFlush();
+    }
+
+    private synchronized void onDestinationReset(String dir) {
+        String destination = destinationNames().get(dir);
+        if (destination != null) {
+            pendingResets.add(destination);
+            scheduleFlush();
+        }
+    }
+
+    private synchronized void onCatalogChanged() {
+        catalogChanged = true;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled || scheduler == null) {
+            return;
+        }
+        flushScheduled = true;
+        scheduler.schedule(this::flush, coalesceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        Map<String, Boolean> changes;
+        Map<String, Integer> deltas;
+        Set<String> resets;
+        boolean catalogUpdate;
+        synchronized (this) {
+            flushScheduled = false;
+            changes = pendingChanges;
+            deltas = pendingDeltas;
+            resets = pendingResets;
+            catalogUpdate = catalogChanged;
+            pendingChanges = new LinkedHashMap<>();
+            pendingDeltas = new LinkedHashMap<>();
+            pendingResets = new HashSet<>();
+            catalogChanged = false;
+        }
+        // Counts are read after the swap (and outside our lock), so they include every change sent here
+        CatalogSnapshot snapshot = catalog.current();
+        Update update = new Update(snapshot);
+        update.reload = !resets.isEmpty();
+        update.catalogChanged = catalogUpdate;
+        changes.forEach((key, member) -> {
+            int slash = key.indexOf('/');
+            int index = snapshot.indexOfDestination(key.substring(slash + 1));
+            if (index >= 0) {
+                update.changes.add(new Change(index, snapshot.getPhotos().get(index), key.substring(0, slash), member));
+            }
+        });
+        deltas.forEach((destination, delta) -> {
+            if (delta != 0) {
+                update.deltas.put(destination, delta);
+            }
+        });
+        Set<String> touched = new HashSet<>(deltas.keySet());
+        touched.addAll(resets);
+        update.counts.putAll(countsOf(touched));
+        for (Consumer<Update> subscriber : subscribers) {
+            try {
+                subscriber.accept(update);
+            } catch (RuntimeException e) {
+                logger.warn("Change feed subscriber failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, Integer> countsOf(Collection<String> destinations) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        destinationNames().forEach((dir, name) -> {
+            if (destinations.contains(name)) {
+                counts.put(name, membershipIndex.count(dir));
+            }
+        });
+        return counts;
+    }
+
+    // Destination folder -> the name clients know it by
+    private Map<String, String> destinationNames() {
+        Map<String, String> names = new LinkedHashMap<>();
+        names.put(photoService.getSelectedDir(), SELECTED);
+        photoService.getCategoryDirs().forEach((name, dir) -> names.putIfAbsent(dir, name));
+        return names;
+    }
+
+    public static class Update {
+        // Catalog the indices below refer to; same fields as /api/catalog/version
+        public long version;
+        public long layout;
+        public String order;
+        public int count;
+        public boolean catalogChanged;
+        // Per-photo state may be stale (a destination was re-read from disk); drop cached state
+        public boolean reload;
+        public List<Change> changes = new ArrayList<>();
+        public Map<String, Integer> deltas = new LinkedHashMap<>();
+        public Map<String, Integer> counts = new LinkedHashMap<>();
+
+        Update(CatalogSnapshot snapshot) {
+            this.version = snapshot.getVersion();
+            this.layout = snapshot.getLayout();
+            this.order = snapshot.getOrder();
+            this.count = snapshot.size();
+        }
+    }
+
+    public static class Change {
+        public int index;
+        public String photo;
+        // "selected" or a category name
+        public String destination;
+        public boolean member;
+
+        public Change(int index, String photo, String destination, boolean member) {
+            this.index = index;
+            this.photo = photo;
+            this.destination = destination;
+            this.member = member;
+        }
+    }
+}
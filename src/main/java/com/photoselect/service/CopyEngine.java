@@ -0,0 +1,508 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background copy engine. Copies run on virtual threads, limited per destination folder,
+ * and land atomically (temp file + rename). Queued jobs are recorded in an append-only
+ * log so copies interrupted by a restart (or a crash) are picked up again; a submit returns
+ * only once its record is on disk. Log appends are group-committed like the
+ * {@link DecisionJournal}'s, so a burst of submits shares one fsync. With deduplicating storage on,
+ * the temp file is a link to the photo's blob instead of a copy (see {@link BlobStore}).
+ */
+@Service
+public class CopyEngine {
+    private static final Logger logger = LoggerFactory.getLogger(CopyEngine.class);
+    private static final int MAX_COMPLETED_JOBS = 1000;
+    private static final int MAX_LOG_BATCH = 1024;
+    // Queued by shutdown: the writer finishes what came before it and exits
+    private static final LogAppend STOP = new LogAppend("");
+
+    @Value("${photos.copy.per-destination-concurrency:2}")
+    private int perDestinationConcurrency;
+
+    @Value("${photos.copy.queue-file:${user.home}/.photoselect/copy-queue.log}")
+    private String queueFile;
+
+    private final MembershipIndex membershipIndex;
+    private final BlobStore blobStore;
+    private final Map<String, CopyJob> jobs = new ConcurrentHashMap<>();
+    // Active (pending or running) job per target file, so repeated requests don't queue duplicates
+    private final Map<String, CopyJob> activeByTarget = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> destinationPermits = new ConcurrentHashMap<>();
+    // Finished jobs stay visible for a while; older ones are only counted
+    private final Queue<String> completedIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong prunedCompleted = new AtomicLong();
+    private final Object idleLock = new Object();
+    private ExecutorService executor;
+    private final BlockingQueue<LogAppend> logAppends = new LinkedBlockingQueue<>();
+    // Guards the log file: writes, compaction and recovery
+    private final Object logLock = new Object();
+    private FileChannel queueLog;
+    private Thread logWriter;
+
+    public CopyEngine(MembershipIndex membershipIndex, BlobStore blobStore) {
+        this.membershipIndex = membershipIndex;
+        this.blobStore = blobStore;
+    }
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        logWriter = new Thread(this::writeLoop, "copy-queue-log");
+        logWriter.setDaemon(true);
+        logWriter.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        logAppends.add(STOP);
+        try {
+            logWriter.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<LogAppend> unwritten = new ArrayList<>();
+        logAppends.drainTo(unwritten);
+        unwritten.forEach(append -> append.done.completeExceptionally(new IOException("copy engine stopped")));
+        synchronized (logLock) {
+            closeLog();
+        }
+    }
+
+    static String targetKey(String destinationDir, String filename) {
+        return destinationDir + File.separator + filename;
+    }
+
+    /**
+     * Queues a copy of {@code source} into {@code destinationDir} unless one is already
+     * queued or running for the same target. The destination counts as a member right away;
+     * it is rolled back if the copy fails.
+     */
+    public CopyJob submit(File source, String destinationDir, String filename, String label) {
+        CopyJob job = new CopyJob(UUID.randomUUID().toString(), source, destinationDir, filename, label);
+        CopyJob existing = activeByTarget.putIfAbsent(job.targetKey(), job);
+        if (existing != null) {
+            return existing;
+        }
+        jobs.put(job.getId(), job);
+        membershipIndex.add(destinationDir, filename);
+        awaitLogged(appendLog("Q", job.getId(), source.getPath(), destinationDir, filename, label), job);
+        schedule(job);
+        return job;
+    }
+
+    /**
+     * Cancels a queued or running copy to the given target. Returns true if a job was cancelled
+     * before its file landed in the destination; its membership is rolled back like a failed copy's.
+     */
+    public boolean cancel(String destinationDir, String filename) {
+        CopyJob job = activeByTarget.get(targetKey(destinationDir, filename));
+        if (job == null) {
+            return false;
+        }
+        synchronized (job) {
+            if (job.getStatus() != CopyJob.Status.PENDING && job.getStatus() != CopyJob.Status.RUNNING) {
+                return false;
+            }
+            job.setStatus(CopyJob.Status.CANCELLED);
+        }
+        appendLog("C", job.getId());
+        if (!Files.exists(Paths.get(job.getDestinationDir(), job.getFilename()))) {
+            membershipIndex.remove(job.getDestinationDir(), job.getFilename());
+        }
+        finish(job);
+        logger.info("Cancelled copy of '{}' to {}", filename, job.getLabel());
+        return true;
+    }
+
+    // Lets tests hold back a destination's copies: takes effect for jobs that start after it
+    void setDestinationPermits(String destinationDir, Semaphore permits) {
+        destinationPermits.put(destinationDir, permits);
+    }
+
+    public boolean isActive(String destinationDir, String filename) {
+        return activeByTarget.containsKey(targetKey(destinationDir, filename));
+    }
+
+    public CopyJob retry(String id) {
+        CopyJob job = jobs.get(id);
+        if (job == null || job.getStatus() != CopyJob.Status.FAILED) {
+            return job;
+        }
+        if (activeByTarget.putIfAbsent(job.targetKey(), job) != null) {
+            return job;
+        }
+        synchronized (job) {
+            job.setError(null);
+            job.setStatus(CopyJob.Status.PENDING);
+        }
+        membershipIndex.add(job.getDestinationDir(), job.getFilename());
+        awaitLogged(appendLog("Q", job.getId(), job.getSource(), job.getDestinationDir(), job.getFilename(), job.getLabel()), job);
+        schedule(job);
+        return job;
+    }
+
+    public List<CopyJob> retryFailed() {
+        List<CopyJob> retried = new ArrayList<>();
+        for (CopyJob job : jobs.values()) {
+            if (job.getStatus() == CopyJob.Status.FAILED) {
+                retried.add(retry(job.getId()));
+            }
+        }
+        return retried;
+    }
+
+    public CopyJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public List<CopyJob> getJobs(CopyJob.Status status) {
+        return jobs.values().stream()
+                .filter(job -> status == null || job.getStatus() == status)
+                .sorted(Comparator.comparing(CopyJob::getCreatedAt))
+                .toList();
+    }
+
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (CopyJob.Status status : CopyJob.Status.values()) {
+            counts.put(status.name().toLowerCase(), 0L);
+        }
+        jobs.values().forEach(job -> counts.merge(job.getStatus().name().toLowerCase(), 1L, Long::sum));
+        counts.put("done", counts.get("done") + prunedCompleted.get());
+        return counts;
+    }
+
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idleLock) {
+            while (!activeByTarget.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idleLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Re-queues jobs left unfinished by the previous run. Called once the membership index
+     * has been built from disk, so the pending targets are shown as members again.
+     */
+    public void recover() {
+        Path log = Paths.get(queueFile);
+        if (!Files.exists(log)) {
+            return;
+        }
+        Map<String, String[]> queued = new LinkedHashMap<>();
+        Map<String, String> failed = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 2) {
+                    continue;
+                }
+                switch (fields[0]) {
+                    case "Q" -> {
+                        if (fields.length >= 6) {
+                            queued.put(fields[1], fields);
+                            failed.remove(fields[1]);
+                        }
+                    }
+                    case "F" -> failed.put(fields[1], fields.length > 2 ? fields[2] : "");
+                    case "D", "C" -> {
+                        queued.remove(fields[1]);
+                        failed.remove(fields[1]);
+                    }
+                    default -> { }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read copy queue {}: {}", log, e.getMessage());
+            return;
+        }
+
+        // Compact: only the outstanding entries survive into the new log, written (and synced)
+        // before anything is resumed
+        synchronized (logLock) {
+            try {
+                closeLog();
+                Files.delete(log);
+            } catch (IOException e) {
+                logger.warn("Failed to compact copy queue {}: {}", log, e.getMessage());
+            }
+        }
+        List<CopyJob> toResume = new ArrayList<>();
+        CompletableFuture<Void> logged = CompletableFuture.completedFuture(null);
+        for (String[] fields : queued.values()) {
+            CopyJob job = new CopyJob(fields[1], new File(fields[2]), fields[3], fields[4], fields[5]);
+            String error = failed.get(job.getId());
+            jobs.put(job.getId(), job);
+            logged = appendLog("Q", job.getId(), fields[2], fields[3], fields[4], fields[5]);
+            if (error != null) {
+                job.setError(error);
+                job.setStatus(CopyJob.Status.FAILED);
+                logged = appendLog("F", job.getId(), error);
+            } else if (activeByTarget.putIfAbsent(job.targetKey(), job) == null) {
+                membershipIndex.add(job.getDestinationDir(), job.getFilename());
+                toResume.add(job);
+            }
+        }
+        // Records are written in order, so the last one being durable means they all are
+        try {
+            logged.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Recovered copy queue could not be rewritten: {}", e.getCause().getMessage());
+        }
+        toResume.forEach(this::schedule);
+        logger.info("Recovered copy queue: {} resumed, {} failed", toResume.size(), failed.size());
+    }
+
+    private void schedule(CopyJob job) {
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the job stays in the queue log and is resumed on the next start
+            logger.warn("Copy engine stopped, leaving '{}' queued", job.getFilename());
+        }
+    }
+
+    private void run(CopyJob job) {
+        Semaphore permits = destinationPermits.computeIfAbsent(job.getDestinationDir(),
+                dir -> new Semaphore(perDestinationConcurrency));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            synchronized (job) {
+                if (job.getStatus() != CopyJob.Status.PENDING) {
+                    return;
+                }
+                job.setStatus(CopyJob.Status.RUNNING);
+                job.incrementAttempts();
+            }
+            copy(job);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void copy(CopyJob job) {
+        Path target = Paths.get(job.getDestinationDir(), job.getFilename());
+        Path tmp = target.resolveSibling("." + job.getFilename() + ".part-" + job.getId());
+        String role = "selected".equals(job.getLabel()) ? IoMetrics.SELECTED : IoMetrics.CATEGORY;
+        try {
+            if (!IoMetrics.time("exists", role, () -> Files.exists(target))) {
+                if (blobStore.isEnabled()) {
+                    IoMetrics.copied(role, IoMetrics.time("link", role, () -> blobStore.materialize(job.getSourceFile().toPath(), tmp)));
+                } else {
+                    IoMetrics.time("copy", role, () -> Files.copy(job.getSourceFile().toPath(), tmp, StandardCopyOption.REPLACE_EXISTING));
+                    IoMetrics.copied(role, Files.size(tmp));
+                }
+                synchronized (job) {
+                    if (job.getStatus() == CopyJob.Status.CANCELLED) {
+                        Files.deleteIfExists(tmp);
+                        return;
+                    }
+                    moveIntoPlace(tmp, target);
+                    job.setStatus(CopyJob.Status.DONE);
+                }
+                logger.info("Copied photo '{}' to {} folder.", job.getFilename(), job.getLabel());
+            } else {
+                synchronized (job) {
+                    job.setStatus(CopyJob.Status.DONE);
+                }
+                logger.info("Photo '{}' already exists in {} folder.", job.getFilename(), job.getLabel());
+            }
+            appendLog("D", job.getId());
+            completedIds.add(job.getId());
+            while (completedIds.size() > MAX_COMPLETED_JOBS) {
+                String oldest = completedIds.poll();
+                if (oldest != null && jobs.remove(oldest) != null) {
+                    prunedCompleted.incrementAndGet();
+                }
+            }
+            finish(job);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // best effort
+            }
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            synchronized (job) {
+                if (job.getStatus() == CopyJob.Status.CANCELLED) {
+                    return;
+                }
+                job.setError(error);
+                job.setStatus(CopyJob.Status.FAILED);
+            }
+            logger.error("Failed to copy photo '{}' to {}: {}", job.getFilename(), job.getLabel(), error);
+            if (!Files.exists(target)) {
+                membershipIndex.remove(job.getDestinationDir(), job.getFilename());
+            }
+            appendLog("F", job.getId(), error.replace('\t', ' ').replace('\n', ' '));
+            finish(job);
+        }
+    }
+
+    private void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void finish(CopyJob job) {
+        activeByTarget.remove(job.targetKey(), job);
+        if (job.getStatus() == CopyJob.Status.CANCELLED) {
+            jobs.remove(job.getId());
+        }
+        compactIfIdle();
+        synchronized (idleLock) {
+            idleLock.notifyAll();
+        }
+    }
+
+    // Nothing outstanding means nothing to replay, so the log can start over. Checked under the
+    // log lock: a Q record written before the check belongs to a job that is still active.
+    private void compactIfIdle() {
+        synchronized (logLock) {
+            if (!activeByTarget.isEmpty()
+                    || jobs.values().stream().anyMatch(job -> job.getStatus() == CopyJob.Status.FAILED)) {
+                return;
+            }
+            try {
+                closeLog();
+                Files.deleteIfExists(Paths.get(queueFile));
+            } catch (IOException e) {
+                logger.warn("Failed to compact copy queue {}: {}", queueFile, e.getMessage());
+            }
+        }
+    }
+
+    // One tab-separated record per line, written and synced by the log writer thread
+    private CompletableFuture<Void> appendLog(String... fields) {
+        LogAppend append = new LogAppend(String.join("\t", fields));
+        logAppends.add(append);
+        return append.done;
+    }
+
+    // A job whose record could not be synced still runs; it just won't be resumed after a crash
+    private void awaitLogged(CompletableFuture<Void> logged, CopyJob job) {
+        try {
+            logged.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Copy of '{}' is not in the queue log and will not survive a restart: {}",
+                    job.getFilename(), e.getCause().getMessage());
+        }
+    }
+
+    // Group commit: one write + one fsync for everything that queued up during the previous one
+    private void writeLoop() {
+        List<LogAppend> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(logAppends.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            logAppends.drainTo(batch, MAX_LOG_BATCH - 1);
+            int stop = batch.indexOf(STOP);
+            if (stop >= 0) {
+                List<LogAppend> late = batch.subList(stop, batch.size());
+                late.forEach(append -> append.done.completeExceptionally(new IOException("copy engine stopped")));
+                late.clear();
+                write(batch);
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<LogAppend> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        batch.forEach(append -> lines.append(append.line).append('\n'));
+        try {
+            synchronized (logLock) {
+                FileChannel channel = openLog();
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            }
+            batch.forEach(append -> append.done.complete(null));
+        } catch (IOException e) {
+            logger.error("Failed to write copy queue {}: {}", queueFile, e.getMessage());
+            batch.forEach(append -> append.done.completeExceptionally(e));
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        if (queueLog == null) {
+            Path log = Paths.get(queueFile);
+            if (log.getParent() != null) {
+                Files.createDirectories(log.getParent());
+            }
+            queueLog = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return queueLog;
+    }
+
+    private void closeLog() {
+        if (queueLog != null) {
+            try {
+                queueLog.close();
+            } catch (IOException e) {
+                logger.debug("Error closing copy queue log: {}", e.getMessage());
+            }
+            queueLog = null;
+        }
+    }
+
+    private static final class LogAppend {
+        final String line;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        LogAppend(String line) {
+            this.line = line;
+        }
+    }
+}
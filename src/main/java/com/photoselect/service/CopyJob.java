@@ -0,0 +1,91 @@
+package com.photoselect.service;
+
+import java.io.File;
+import java.time.Instant;
+
+public class CopyJob {
+    // JOURNALED: recorded in the decision journal only; the copy happens when decisions are materialized
+    public enum Status { PENDING, RUNNING, DONE, FAILED, CANCELLED, JOURNALED }
+
+    private final String id;
+    private final File source;
+    private final String destinationDir;
+    private final String filename;
+    private final String label;
+    private final Instant createdAt;
+    private volatile Status status = Status.PENDING;
+    private volatile String error;
+    private volatile int attempts;
+    private volatile Instant updatedAt;
+
+    CopyJob(String id, File source, String destinationDir, String filename, String label) {
+        this.id = id;
+        this.source = source;
+        this.destinationDir = destinationDir;
+        this.filename = filename;
+        this.label = label;
+        this.createdAt = Instant.now();
+        this.updatedAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source.getPath();
+    }
+
+    File getSourceFile() {
+        return source;
+    }
+
+    public String getDestinationDir() {
+        return destinationDir;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+        this.updatedAt = Instant.now();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    void incrementAttempts() {
+        attempts++;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    String targetKey() {
+        return CopyEngine.targetKey(destinationDir, filename);
+    }
+}
@@ -0,0 +1,403 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.photoselect.exception.PhotoOperationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Journal mode ({@code photos.decisions.mode=journal}): select/copy/delete decisions are appended
+ * to a local log instead of touching the destination folders, and only the net result is applied
+ * later by {@link #materialize()}. Selecting and unselecting a photo ten times costs ten short
+ * appends and no copies at all.
+ *
+ * <p>Appends are group-committed: a writer thread drains everything queued while the previous
+ * fsync ran and syncs the whole batch once, so a burst of decisions costs one fsync, not one each.
+ * Callers return once their record is durable. The membership index is updated right away, so
+ * the UI and counts reflect decisions before they are materialized.
+ */
+@Service
+public class DecisionJournal {
+    private static final Logger logger = LoggerFactory.getLogger(DecisionJournal.class);
+    public static final String MODE_IMMEDIATE = "immediate";
+    public static final String MODE_JOURNAL = "journal";
+    private static final int MAX_BATCH = 1024;
+
+    private final MembershipIndex membershipIndex;
+    private final CopyEngine copyEngine;
+
+    // Net decision per target (destination dir + file name); guarded by this
+    private final Map<String, Decision> pending = new LinkedHashMap<>();
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final Object fileLock = new Object();
+    private final Object materializeLock = new Object();
+    private FileChannel journal;
+    private Thread writer;
+    private ScheduledExecutorService scheduler;
+    private volatile Instant lastMaterialized;
+    private volatile boolean stopped;
+
+    @Value("${photos.decisions.mode:immediate}")
+    private String mode;
+
+    @Value("${photos.decisions.journal-file:${user.home}/.photoselect/decisions.log}")
+    private String journalFile;
+
+    // 0 = only when asked (POST /api/decisions/materialize)
+    @Value("${photos.decisions.materialize-interval-seconds:0}")
+    private long materializeIntervalSeconds;
+
+    public DecisionJournal(MembershipIndex membershipIndex, CopyEngine copyEngine) {
+        this.membershipIndex = membershipIndex;
+        this.copyEngine = copyEngine;
+    }
+
+    @PostConstruct
+    void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        membershipIndex.addListener(new MembershipIndex.ChangeListener() {
+            @Override
+            public void membershipChanged(String dir, String filename, boolean member) {
+            }
+
+            // A rescan shows only what is on disk; put the decisions not yet materialized back on top
+            @Override
+            public void destinationReset(String dir) {
+                reapply(dir);
+            }
+        });
+        writer = new Thread(this::writeLoop, "decision-journal");
+        writer.setDaemon(true);
+        writer.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "decision-materializer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (materializeIntervalSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::materializeQuietly, materializeIntervalSeconds,
+                    materializeIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        stopped = true;
+        scheduler.shutdownNow();
+        writer.interrupt();
+        synchronized (fileLock) {
+            closeJournal();
+        }
+    }
+
+    public boolean isEnabled() {
+        return MODE_JOURNAL.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Replays the journal left by the previous run. Called once the membership index has been
+     * built from disk, so the replayed decisions land on top of what the folders hold.
+     */
+    public void recover() {
+        Path path = Paths.get(journalFile);
+        if (!isEnabled()) {
+            if (path.toFile().length() > 0) {
+                logger.warn("Decision journal {} has unapplied decisions, but journal mode is off; they are ignored", path);
+            }
+            return;
+        }
+        int records = 0;
+        if (Files.exists(path)) {
+            try {
+                String content = Files.readString(path, StandardCharsets.UTF_8);
+                // A crash can leave half a line at the end; only newline-terminated records count
+                int end = content.lastIndexOf('\n');
+                for (String line : end < 0 ? new String[0] : content.substring(0, end).split("\n")) {
+                    Decision decision = Decision.parse(line);
+                    if (decision != null) {
+                        synchronized (this) {
+                            pending.put(decision.key(), decision);
+                        }
+                        records++;
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Failed to read decision journal {}: {}", path, e.getMessage());
+                return;
+            }
+        }
+        List<Decision> replayed;
+        synchronized (this) {
+            replayed = new ArrayList<>(pending.values());
+        }
+        replayed.forEach(this::applyToIndex);
+        synchronized (fileLock) {
+            rewrite(replayed);
+        }
+        logger.info("Decision journal: {} records replayed, {} pending decisions", records, replayed.size());
+    }
+
+    // Records that the file should be in (present) or absent from the destination; returns once durable
+    public void record(String dir, String filename, File source, String label, boolean present) {
+        Decision decision = new Decision(dir, filename, source == null ? "" : source.getPath(), label, present);
+        Append append = new Append(decision.toLine());
+        synchronized (this) {
+            // Together, so the journal and the index see decisions for a target in the same order as pending
+            pending.put(decision.key(), decision);
+            appends.add(append);
+            applyToIndex(decision);
+        }
+        try {
+            append.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PhotoOperationException("Interrupted while recording decision for " + filename);
+        } catch (ExecutionException e) {
+            throw new PhotoOperationException("Could not record decision for " + filename + ": " + e.getCause().getMessage());
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Applies the net pending decisions to the destination folders: copies go through the copy
+     * engine (whose own queue log takes over their durability), removals are deleted here. The
+     * journal is then compacted down to whatever was decided while this ran.
+     */
+    public Map<String, Object> materialize() {
+        synchronized (materializeLock) {
+            return materializePending();
+        }
+    }
+
+    // Decisions keep being recorded while this runs; only the ones applied here leave the journal
+    private Map<String, Object> materializePending() {
+        List<Decision> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending.values());
+        }
+        List<Decision> applied = new ArrayList<>();
+        int copies = 0;
+        int deletes = 0;
+        int unchanged = 0;
+        for (Decision decision : batch) {
+            File target = new File(decision.dir, decision.filename);
+            if (decision.present) {
+                if (IoMetrics.exists(target, IoMetrics.DESTINATION)) {
+                    unchanged++;
+                } else {
+                    copyEngine.submit(new File(decision.source), decision.dir, decision.filename, decision.label);
+                    copies++;
+                }
+            } else {
+                copyEngine.cancel(decision.dir, decision.filename);
+                if (!IoMetrics.exists(target, IoMetrics.DESTINATION)) {
+                    unchanged++;
+                } else if (IoMetrics.delete(target, IoMetrics.DESTINATION)) {
+                    deletes++;
+                } else {
+                    logger.warn("Could not delete '{}' from {}; keeping the decision", decision.filename, decision.dir);
+                    continue;
+                }
+            }
+            applied.add(decision);
+        }
+        int left;
+        synchronized (this) {
+            // Identity match: a target decided again meanwhile keeps its newer decision
+            applied.forEach(decision -> pending.remove(decision.key(), decision));
+            left = pending.size();
+            synchronized (fileLock) {
+                // Appends still queued re-add lines that may already be applied; replaying them is harmless
+                rewrite(new ArrayList<>(pending.values()));
+            }
+        }
+        lastMaterialized = Instant.now();
+        logger.info("Materialized decisions: {} copies queued, {} deleted, {} already in place, {} left pending",
+                copies, deletes, unchanged, left);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("copies", copies);
+        result.put("deletes", deletes);
+        result.put("unchanged", unchanged);
+        result.put("pending", left);
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("mode", isEnabled() ? MODE_JOURNAL : MODE_IMMEDIATE);
+        status.put("pending", pendingCount());
+        status.put("journalFile", journalFile);
+        status.put("journalBytes", isEnabled() ? Paths.get(journalFile).toFile().length() : 0);
+        status.put("materializeIntervalSeconds", materializeIntervalSeconds);
+        status.put("lastMaterialized", lastMaterialized == null ? null : lastMaterialized.toString());
+        return status;
+    }
+
+    private void materializeQuietly() {
+        try {
+            materialize();
+        } catch (RuntimeException e) {
+            logger.error("Scheduled materialization failed: {}", e.getMessage());
+        }
+    }
+
+    private void applyToIndex(Decision decision) {
+        if (decision.present) {
+            membershipIndex.add(decision.dir, decision.filename);
+        } else {
+            membershipIndex.remove(decision.dir, decision.filename);
+        }
+    }
+
+    private void reapply(String dir) {
+        List<Decision> decisions;
+        synchronized (this) {
+            decisions = pending.values().stream().filter(d -> d.dir.equals(dir)).toList();
+        }
+        decisions.forEach(this::applyToIndex);
+    }
+
+    // Group commit: one write + one fsync for everything that queued up during the previous one
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        while (!stopped) {
+            try {
+                batch.add(appends.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            appends.drainTo(batch, MAX_BATCH - 1);
+            StringBuilder lines = new StringBuilder();
+            batch.forEach(append -> lines.append(append.line).append('\n'));
+            try {
+                synchronized (fileLock) {
+                    FileChannel channel = openJournal();
+                    ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    channel.force(false);
+                }
+                batch.forEach(append -> append.done.complete(null));
+            } catch (IOException e) {
+                logger.error("Failed to write decision journal {}: {}", journalFile, e.getMessage());
+                batch.forEach(append -> append.done.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        if (journal == null) {
+            Path path = Paths.get(journalFile);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return journal;
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.debug("Error closing decision journal: {}", e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    // Replaces the journal with just the given decisions (temp file + rename, so a crash keeps one or the other)
+    private void rewrite(List<Decision> decisions) {
+        Path path = Paths.get(journalFile);
+        try {
+            closeJournal();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                StringBuilder lines = new StringBuilder();
+                decisions.forEach(decision -> lines.append(decision.toLine()).append('\n'));
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to compact decision journal {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class Append {
+        final String line;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Append(String line) {
+            this.line = line;
+        }
+    }
+
+    // One tab-separated record: A (present) or R (absent), destination dir, file name, source, label
+    private static final class Decision {
+        final String dir;
+        final String filename;
+        final String source;
+        final String label;
+        final boolean present;
+
+        Decision(String dir, String filename, String source, String label, boolean present) {
+            this.dir = dir;
+            this.filename = filename;
+            this.source = source;
+            this.label = label;
+            this.present = present;
+        }
+
+        String key() {
+            return CopyEngine.targetKey(dir, filename);
+        }
+
+        String toLine() {
+            return String.join("\t", present ? "A" : "R", dir, filename, source, label);
+        }
+
+        static Decision parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length < 5 || !(fields[0].equals("A") || fields[0].equals("R"))) {
+                return null;
+            }
+            return new Decision(fields[1], fields[2], fields[3], fields[4], fields[0].equals("A"));
+        }
+    }
+}
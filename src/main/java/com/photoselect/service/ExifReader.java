@@ -0,0 +1,392 @@
+package com.photoselect.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Minimal EXIF reader: walks the JPEG segment headers up to the first frame header and
+ * parses the TIFF structure in APP1, so only the first few KB of a (20+ MB) photo are read.
+ * PNGs only yield their dimensions. Also locates the small JPEG thumbnail cameras embed
+ * in IFD1, which is far cheaper to decode than the photo itself, and the larger preview
+ * many bodies add as a second image in an APP2 Multi-Picture (MPF) segment.
+ */
+final class ExifReader {
+    // APPn segments precede the frame header; give up if a file claims more than this
+    private static final long HEADER_LIMIT = 512 * 1024;
+    private static final DateTimeFormatter EXIF_TIME = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private static final int TAG_MAKE = 0x010F;
+    private static final int TAG_MODEL = 0x0110;
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_DATE_TIME = 0x0132;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_SUB_SEC_TIME_ORIGINAL = 0x9291;
+    private static final int TAG_PIXEL_X_DIMENSION = 0xA002;
+    private static final int TAG_PIXEL_Y_DIMENSION = 0xA003;
+    private static final int TAG_THUMBNAIL_OFFSET = 0x0201;
+    private static final int TAG_THUMBNAIL_LENGTH = 0x0202;
+    private static final int TAG_MP_ENTRY = 0xB002;
+    // MP entry type codes 0x010001-0x010005: VGA, Full HD, 4K, 8K and "large thumbnail" previews
+    private static final int MP_TYPE_PREVIEW_FIRST = 0x010001;
+    private static final int MP_TYPE_PREVIEW_LAST = 0x010005;
+    private static final int MAX_PREVIEW_BYTES = 8 * 1024 * 1024;
+
+    private ExifReader() {
+    }
+
+    static PhotoMetadata read(Path file, long mtime, long size) throws IOException {
+        Header header;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            header = readHeader(channel);
+        }
+        return new PhotoMetadata(mtime, size, header.captureTime(), header.camera(), header.orientation,
+                header.width > 0 ? header.width : header.exifWidth,
+                header.height > 0 ? header.height : header.exifHeight);
+    }
+
+    // The EXIF orientation (1-8, 1 = upright as stored), 1 if the file has none
+    static int readOrientation(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int orientation = readHeader(channel).orientation;
+            return orientation >= 1 && orientation <= 8 ? orientation : 1;
+        }
+    }
+
+    // The embedded EXIF thumbnail (typically 160x120) as JPEG bytes, or null if there is none
+    static byte[] readThumbnail(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.thumbnailOffset <= 0 || header.thumbnailLength <= 0 || header.thumbnailLength > 0xFFFF) {
+                return null;
+            }
+            ByteBuffer thumbnail = read(channel, header.tiffStart + header.thumbnailOffset, header.thumbnailLength);
+            if (thumbnail.remaining() != header.thumbnailLength
+                    || (thumbnail.get(0) & 0xFF) != 0xFF || (thumbnail.get(1) & 0xFF) != 0xD8) {
+                return null;
+            }
+            return thumbnail.array();
+        }
+    }
+
+    /**
+     * The largest embedded preview (the MPF preview image if there is one, else the IFD1
+     * thumbnail) as JPEG bytes, or null if the file has neither. Embedded previews carry no
+     * orientation of their own, so the photo's is added unless it is the default.
+     */
+    static byte[] readPreview(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            byte[] preview = null;
+            if (header.previewOffset > 0 && header.previewLength > 0) {
+                preview = readJpegAt(channel, header.previewOffset, header.previewLength);
+            }
+            if (preview == null && header.thumbnailOffset > 0 && header.thumbnailLength > 0 && header.thumbnailLength <= 0xFFFF) {
+                preview = readJpegAt(channel, header.tiffStart + header.thumbnailOffset, header.thumbnailLength);
+            }
+            return preview == null ? null : withOrientation(preview, header.orientation);
+        }
+    }
+
+    private static byte[] readJpegAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer jpeg = read(channel, position, length);
+        if (jpeg.remaining() != length || length < 4 || (jpeg.get(0) & 0xFF) != 0xFF || (jpeg.get(1) & 0xFF) != 0xD8) {
+            return null;
+        }
+        return jpeg.array();
+    }
+
+    // Inserts a minimal EXIF segment holding only the orientation tag after SOI, so browsers rotate
+    // the preview like the full photo; left alone if it is upright or already has its own EXIF
+    static byte[] withOrientation(byte[] jpeg, int orientation) {
+        if (orientation <= 1 || orientation > 8 || ((jpeg[2] & 0xFF) == 0xFF && (jpeg[3] & 0xFF) == 0xE1)) {
+            return jpeg;
+        }
+        ByteBuffer out = ByteBuffer.allocate(jpeg.length + 36).order(ByteOrder.BIG_ENDIAN);
+        out.put(jpeg, 0, 2);
+        out.putShort((short) 0xFFE1).putShort((short) 34);
+        out.put(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        out.put(new byte[]{'M', 'M'}).putShort((short) 42).putInt(8);
+        out.putShort((short) 1);
+        out.putShort((short) TAG_ORIENTATION).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        out.putInt(0);
+        out.put(jpeg, 2, jpeg.length - 2);
+        return out.array();
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        Header header = new Header();
+        ByteBuffer start = read(channel, 0, 24);
+        if (start.remaining() >= 4 && (start.get(0) & 0xFF) == 0xFF && (start.get(1) & 0xFF) == 0xD8) {
+            readJpeg(channel, header);
+        } else if (start.remaining() >= 24 && start.getInt(0) == 0x89504E47 && start.getInt(12) == 0x49484452) {
+            header.width = start.getInt(16);
+            header.height = start.getInt(20);
+        }
+        return header;
+    }
+
+    private static void readJpeg(FileChannel channel, Header header) throws IOException {
+        long end = Math.min(channel.size(), HEADER_LIMIT);
+        long pos = 2;
+        while (pos + 4 <= end) {
+            ByteBuffer marker = read(channel, pos, 4);
+            if (marker.remaining() < 4 || (marker.get(0) & 0xFF) != 0xFF) {
+                return;
+            }
+            int type = marker.get(1) & 0xFF;
+            if (type == 0xFF) {
+                pos++; // fill byte
+                continue;
+            }
+            if (type == 0x01 || type == 0xD8 || (type >= 0xD0 && type <= 0xD7)) {
+                pos += 2; // markers without a length
+                continue;
+            }
+            if (type == 0xDA || type == 0xD9) {
+                return; // entropy-coded data starts; there is no more header
+            }
+            int length = marker.getShort(2) & 0xFFFF;
+            if (length < 2) {
+                return;
+            }
+            if (type == 0xE1 && !header.exifSeen) {
+                ByteBuffer segment = read(channel, pos + 4, length - 2);
+                if (isExif(segment)) {
+                    header.exifSeen = true;
+                    header.tiffStart = pos + 4 + 6;
+                    try {
+                        parseTiff(segment.position(6).slice(), header);
+                    } catch (IndexOutOfBoundsException e) {
+                        // Truncated or corrupt EXIF: keep whatever was read before the bad offset
+                    }
+                }
+            } else if (type == 0xE2 && !header.mpfSeen) {
+                ByteBuffer segment = read(channel, pos + 4, length - 2);
+                if (isMpf(segment)) {
+                    header.mpfSeen = true;
+                    try {
+                        parseMpf(segment.position(4).slice(), pos + 4 + 4, header);
+                    } catch (IndexOutOfBoundsException e) {
+                        // Corrupt MP index: fall back to the IFD1 thumbnail
+                    }
+                }
+            } else if (isStartOfFrame(type)) {
+                ByteBuffer frame = read(channel, pos + 4, 5);
+                if (frame.remaining() == 5) {
+                    header.height = frame.getShort(1) & 0xFFFF;
+                    header.width = frame.getShort(3) & 0xFFFF;
+                }
+                return;
+            }
+            pos += 2 + length;
+        }
+    }
+
+    private static boolean isExif(ByteBuffer segment) {
+        return segment.remaining() > 14 && segment.get(0) == 'E' && segment.get(1) == 'x' && segment.get(2) == 'i'
+                && segment.get(3) == 'f' && segment.get(4) == 0 && segment.get(5) == 0;
+    }
+
+    private static boolean isMpf(ByteBuffer segment) {
+        return segment.remaining() > 12 && segment.get(0) == 'M' && segment.get(1) == 'P' && segment.get(2) == 'F'
+                && segment.get(3) == 0;
+    }
+
+    // The MP index IFD lists every image in the file with offsets relative to its own TIFF header
+    // (mpStart in the file); the first entry is the photo itself. Keeps the largest preview entry.
+    private static void parseMpf(ByteBuffer mp, long mpStart, Header header) {
+        if (mp.get(0) == 'I' && mp.get(1) == 'I') {
+            mp.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (mp.get(0) != 'M' || mp.get(1) != 'M') {
+            return;
+        }
+        int ifd = mp.getInt(4);
+        if (ifd < 8 || ifd > mp.limit() - 2) {
+            return;
+        }
+        int entries = mp.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry > mp.limit() - 12) {
+                break;
+            }
+            if ((mp.getShort(entry) & 0xFFFF) != TAG_MP_ENTRY) {
+                continue;
+            }
+            int offset = mp.getInt(entry + 8);
+            if (offset < 0 || offset > mp.limit()) {
+                continue;
+            }
+            // Bounded by what the segment holds, not by the (possibly corrupt) count
+            int count = Math.min(mp.getInt(entry + 4), mp.limit() - offset) / 16;
+            for (int image = 1; image < count; image++) {
+                int at = offset + image * 16;
+                int type = mp.getInt(at) & 0x00FFFFFF;
+                int size = mp.getInt(at + 4);
+                int dataOffset = mp.getInt(at + 8);
+                if (type >= MP_TYPE_PREVIEW_FIRST && type <= MP_TYPE_PREVIEW_LAST && dataOffset > 0
+                        && size > header.previewLength && size <= MAX_PREVIEW_BYTES) {
+                    header.previewOffset = mpStart + (dataOffset & 0xFFFFFFFFL);
+                    header.previewLength = size;
+                }
+            }
+        }
+    }
+
+    private static boolean isStartOfFrame(int type) {
+        return type >= 0xC0 && type <= 0xCF && type != 0xC4 && type != 0xC8 && type != 0xCC;
+    }
+
+    private static void parseTiff(ByteBuffer tiff, Header header) {
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) == 'M' && tiff.get(1) == 'M') {
+            tiff.order(ByteOrder.BIG_ENDIAN);
+        } else {
+            return;
+        }
+        if ((tiff.getShort(2) & 0xFFFF) != 42) {
+            return;
+        }
+        int ifd0 = tiff.getInt(4);
+        // IFD1, chained after IFD0, describes the thumbnail; read it first so IFD0 values win
+        readIfd(tiff, nextIfd(tiff, ifd0), header);
+        int exifIfd = readIfd(tiff, ifd0, header);
+        if (exifIfd > 0) {
+            readIfd(tiff, exifIfd, header);
+        }
+    }
+
+    private static int nextIfd(ByteBuffer tiff, int offset) {
+        if (offset < 8 || offset > tiff.limit() - 2) {
+            return 0;
+        }
+        int next = offset + 2 + (tiff.getShort(offset) & 0xFFFF) * 12;
+        return next <= tiff.limit() - 4 ? tiff.getInt(next) : 0;
+    }
+
+    // Returns the Exif sub-IFD offset if this IFD points to one, else 0
+    private static int readIfd(ByteBuffer tiff, int offset, Header header) {
+        if (offset < 8 || offset > tiff.limit() - 2) {
+            return 0;
+        }
+        int exifIfd = 0;
+        int entries = tiff.getShort(offset) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = offset + 2 + i * 12;
+            if (entry > tiff.limit() - 12) {
+                break;
+            }
+            switch (tiff.getShort(entry) & 0xFFFF) {
+                case TAG_MAKE -> header.make = ascii(tiff, entry);
+                case TAG_MODEL -> header.model = ascii(tiff, entry);
+                case TAG_ORIENTATION -> header.orientation = unsigned(tiff, entry);
+                case TAG_DATE_TIME -> header.dateTime = ascii(tiff, entry);
+                case TAG_EXIF_IFD -> exifIfd = unsigned(tiff, entry);
+                case TAG_DATE_TIME_ORIGINAL -> header.dateTimeOriginal = ascii(tiff, entry);
+                case TAG_SUB_SEC_TIME_ORIGINAL -> header.subSecTimeOriginal = ascii(tiff, entry);
+                case TAG_PIXEL_X_DIMENSION -> header.exifWidth = unsigned(tiff, entry);
+                case TAG_PIXEL_Y_DIMENSION -> header.exifHeight = unsigned(tiff, entry);
+                case TAG_THUMBNAIL_OFFSET -> header.thumbnailOffset = unsigned(tiff, entry);
+                case TAG_THUMBNAIL_LENGTH -> header.thumbnailLength = unsigned(tiff, entry);
+                default -> {
+                }
+            }
+        }
+        return exifIfd;
+    }
+
+    private static int unsigned(ByteBuffer tiff, int entry) {
+        return switch (tiff.getShort(entry + 2)) {
+            case 3 -> tiff.getShort(entry + 8) & 0xFFFF; // SHORT
+            case 4 -> tiff.getInt(entry + 8);            // LONG
+            default -> 0;
+        };
+    }
+
+    private static String ascii(ByteBuffer tiff, int entry) {
+        if (tiff.getShort(entry + 2) != 2) {
+            return null;
+        }
+        int count = tiff.getInt(entry + 4);
+        int offset = count <= 4 ? entry + 8 : tiff.getInt(entry + 8);
+        // Subtracted rather than added: a corrupt count near 2^31 would overflow offset + count
+        if (count <= 0 || offset < 0 || offset > tiff.limit() || count > tiff.limit() - offset) {
+            return null;
+        }
+        byte[] bytes = new byte[count];
+        tiff.get(offset, bytes);
+        int length = 0;
+        while (length < count && bytes[length] != 0) {
+            length++;
+        }
+        String value = new String(bytes, 0, length, StandardCharsets.US_ASCII).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                break;
+            }
+        }
+        return buf.flip();
+    }
+
+    private static final class Header {
+        boolean exifSeen;
+        boolean mpfSeen;
+        long tiffStart;
+        long previewOffset;
+        int previewLength;
+        int thumbnailOffset;
+        int thumbnailLength;
+        String make;
+        String model;
+        String dateTime;
+        String dateTimeOriginal;
+        String subSecTimeOriginal;
+        int orientation = 1;
+        int width;
+        int height;
+        int exifWidth;
+        int exifHeight;
+
+        long captureTime() {
+            String value = dateTimeOriginal != null ? dateTimeOriginal : dateTime;
+            if (value == null) {
+                return PhotoMetadata.NO_CAPTURE_TIME;
+            }
+            try {
+                long millis = LocalDateTime.parse(value, EXIF_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
+                if (dateTimeOriginal != null && subSecTimeOriginal != null && subSecTimeOriginal.chars().allMatch(Character::isDigit)) {
+                    // Fractional seconds as digits: "5" is 500 ms, "123456" is 123 ms
+                    String digits = (subSecTimeOriginal + "00").substring(0, 3);
+                    millis += Integer.parseInt(digits);
+                }
+                return millis;
+            } catch (DateTimeParseException e) {
+                return PhotoMetadata.NO_CAPTURE_TIME; // e.g. "0000:00:00 00:00:00" from cameras without a clock set
+            }
+        }
+
+        String camera() {
+            if (model == null) {
+                return make;
+            }
+            // Most bodies repeat the make in the model ("Canon" / "Canon EOS R5")
+            return make == null || model.regionMatches(true, 0, make, 0, make.length()) ? model : make + " " + model;
+        }
+    }
+}
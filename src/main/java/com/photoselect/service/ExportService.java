@@ -0,0 +1,154 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a destination folder as a ZIP straight to the client. Already-compressed images are
+ * STORED, which means each entry's CRC and size must be known before its header is written:
+ * every file is read twice, once to checksum it and once (usually from the page cache) to
+ * send it. Both passes share one fixed buffer, so memory does not grow with the archive and
+ * nothing is staged on disk. Archives past 4 GB / 65535 entries switch to Zip64 on their own.
+ */
+@Service
+public class ExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+    // Formats that are already compressed; deflating them again costs CPU and saves nothing
+    private static final Set<String> STORED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "heic", "webp");
+
+    private final PhotoService photoService;
+    private Semaphore slots;
+
+    // Exports hold a request thread and a disk for minutes; more than this get 429 instead
+    @Value("${photos.export.concurrency:1}")
+    private int concurrency;
+
+    @Value("${photos.export.buffer-bytes:1048576}")
+    private int bufferBytes;
+
+    public ExportService(PhotoService photoService) {
+        this.photoService = photoService;
+    }
+
+    @PostConstruct
+    void init() {
+        slots = new Semaphore(Math.max(1, concurrency));
+    }
+
+    // Null when the export limit is reached; the slot must be closed once the export is done
+    public Slot tryStart() {
+        return slots.tryAcquire() ? new Slot() : null;
+    }
+
+    // "selected" or a category name -> its folder; null if there is no such destination
+    public String resolveDir(String name) {
+        if ("selected".equalsIgnoreCase(name)) {
+            return photoService.getSelectedDir();
+        }
+        return photoService.getCategoryPath(name);
+    }
+
+    /**
+     * Writes every image in {@code dir} to {@code out} as one ZIP. Returns the number of
+     * entries; throws if the client goes away or a file changes between the two passes.
+     */
+    public int writeZip(String dir, OutputStream out) throws IOException {
+        List<String> names = photoService.getCategoryPhotos(dir);
+        byte[] buffer = new byte[bufferBytes];
+        long start = System.nanoTime();
+        long bytes = 0;
+        ZipOutputStream zip = new ZipOutputStream(out);
+        int entries = 0;
+        for (String name : names) {
+            File file = new File(dir, name);
+            ZipEntry entry = new ZipEntry(name);
+            entry.setLastModifiedTime(FileTime.fromMillis(file.lastModified()));
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                if (isStored(name)) {
+                    entry.setMethod(ZipEntry.STORED);
+                    checksum(file, entry, buffer);
+                }
+                zip.putNextEntry(entry);
+                bytes += copy(in, zip, buffer);
+                zip.closeEntry();
+                entries++;
+            } catch (NoSuchFileException e) {
+                // Removed from the folder since it was listed; nothing of it has been written yet
+                logger.debug("Skipping '{}' in export, it no longer exists", name);
+            } catch (ZipException e) {
+                // Size/CRC no longer match: the file was rewritten mid-export. The archive can't be fixed up now.
+                throw new IOException("'" + name + "' changed during export", e);
+            }
+        }
+        zip.finish();
+        zip.flush();
+        IoMetrics.served("export", bytes);
+        logger.info("Exported {} photos ({} MB) from {} in {} ms", entries, bytes >> 20, dir,
+                (System.nanoTime() - start) / 1_000_000);
+        return entries;
+    }
+
+    static boolean isStored(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && STORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static void checksum(File file, ZipEntry entry, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+    }
+
+    private static long copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        long copied = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            copied += n;
+        }
+        return copied;
+    }
+
+    public final class Slot implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+}
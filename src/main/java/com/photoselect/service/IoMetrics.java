@@ -0,0 +1,104 @@
+package com.photoselect.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for filesystem calls and counters for bytes moved, so "it's slow" can be pinned on
+ * listing, copying or serving. Meters go to Micrometer's global registry, which Spring Boot
+ * wires its own registries into; that lets plain helpers (the scanner, copy workers, the
+ * image writer) record without being beans, and makes them no-ops in unit tests.
+ */
+public final class IoMetrics {
+    // Directory roles used as the "role" tag
+    public static final String SOURCE = "source";
+    public static final String SELECTED = "selected";
+    public static final String CATEGORY = "category";
+    // A destination folder whose role the caller does not know (the membership index sees only paths)
+    public static final String DESTINATION = "destination";
+    public static final String RENDITION = "rendition";
+
+    private static final Map<String, Timer> fsTimers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private IoMetrics() {
+    }
+
+    @FunctionalInterface
+    public interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    public static <T> T time(String operation, String role, IoCall<T> call) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            record(operation, role, System.nanoTime() - start);
+        }
+    }
+
+    public static boolean exists(File file, String role) {
+        long start = System.nanoTime();
+        try {
+            return file.exists();
+        } finally {
+            record("exists", role, System.nanoTime() - start);
+        }
+    }
+
+    public static boolean delete(File file, String role) {
+        long start = System.nanoTime();
+        try {
+            return file.delete();
+        } finally {
+            record("delete", role, System.nanoTime() - start);
+        }
+    }
+
+    public static String[] list(File dir, FilenameFilter filter, String role) {
+        long start = System.nanoTime();
+        try {
+            return dir.list(filter);
+        } finally {
+            record("list", role, System.nanoTime() - start);
+        }
+    }
+
+    public static void record(String operation, String role, long nanos) {
+        fsTimers.computeIfAbsent(operation + "/" + role, key -> Timer.builder("photoselect.fs")
+                .description("Filesystem calls by operation and directory role")
+                .tag("op", operation)
+                .tag("role", role)
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Bytes landed in a destination; with the "copy" timer this gives copy bytes/s per role.
+    // With deduplicating storage only bytes actually written count (new blobs, fallback copies), not links.
+    public static void copied(String role, long bytes) {
+        counter("photoselect.copy.bytes", "role", role, "Bytes copied into destination folders").increment(bytes);
+    }
+
+    // Image bytes handed to clients: "memory" (prefetched), "file" (original), "rendition", "preview" (embedded) or "export" (ZIP)
+    public static void served(String from, long bytes) {
+        counter("photoselect.image.bytes", "from", from, "Image bytes served").increment(bytes);
+    }
+
+    private static Counter counter(String name, String tag, String value, String description) {
+        return counters.computeIfAbsent(name + "/" + value, key -> Counter.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag(tag, value)
+                .register(Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,412 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+/**
+ * In-memory view of which source photos are present in each destination folder,
+ * so membership and count lookups never have to touch the (slow, synced) disk.
+ * Lookups take no locks, so any number of reviewers can read state while copies land.
+ */
+@Component
+public class MembershipIndex {
+    private static final Logger logger = LoggerFactory.getLogger(MembershipIndex.class);
+
+    private final Map<String, Destination> destinations = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Destination> watchKeys = new ConcurrentHashMap<>();
+    private volatile CatalogSnapshot catalog = CatalogSnapshot.of(0, List.of());
+    private WatchService watchService;
+    private volatile Predicate<String> imageFilter = PhotoService::isImageFile;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Called after a destination actually gained or lost a file, whoever made the change
+    public interface ChangeListener {
+        void membershipChanged(String dir, String filename, boolean member);
+
+        // The destination was re-read from disk; any per-file view of it may be stale
+        default void destinationReset(String dir) {
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Destinations hold copies of source photos, so they should match the same extensions
+    public void setImageFilter(Predicate<String> imageFilter) {
+        this.imageFilter = imageFilter;
+    }
+
+    public void rebuild(List<String> sources, Collection<String> destinationDirs) {
+        rebuild(CatalogSnapshot.of(1, sources), destinationDirs);
+    }
+
+    public synchronized void rebuild(CatalogSnapshot snapshot, Collection<String> destinationDirs) {
+        catalog = snapshot;
+
+        watchKeys.keySet().forEach(WatchKey::cancel);
+        watchKeys.clear();
+        destinations.clear();
+        List<Destination> scanned = new ArrayList<>();
+        for (String dir : new LinkedHashSet<>(destinationDirs)) {
+            scanned.add(new Destination(dir));
+        }
+        // Listing a synced folder is slow and there may be dozens of categories; list them all at
+        // once so this takes as long as the slowest folder rather than the sum of all of them
+        try (ExecutorService scans = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Destination destination : scanned) {
+                scans.execute(() -> scan(destination));
+            }
+        }
+        for (Destination destination : scanned) {
+            destinations.put(destination.name, destination);
+            watch(destination);
+        }
+    }
+
+    // Each destination also catches up lazily on its next access; this just does it eagerly
+    public void onCatalogChanged(CatalogSnapshot snapshot) {
+        catalog = snapshot;
+        for (Destination destination : destinations.values()) {
+            destination.sync();
+        }
+    }
+
+    public boolean contains(String dir, String filename) {
+        Destination destination = destinations.get(dir);
+        if (destination == null) {
+            return new File(dir, filename).exists();
+        }
+        return destination.contains(filename);
+    }
+
+    public int count(String dir) {
+        Destination destination = destinations.get(dir);
+        return destination == null ? 0 : destination.count();
+    }
+
+    // Members that are part of the source set, i.e. excluding stray files in the folder
+    public int sourceMemberCount(String dir) {
+        Destination destination = destinations.get(dir);
+        return destination == null ? 0 : destination.sourceMemberCount();
+    }
+
+    /**
+     * Indices of the members of a destination in {@code snapshot}, in its order, so the caller can
+     * resolve them against the snapshot it is rendering. Members missing from it (photos added
+     * since) are left out.
+     */
+    public int[] sourceMembers(String dir, CatalogSnapshot snapshot, int offset, int limit) {
+        Destination destination = destinations.get(dir);
+        return destination == null ? new int[0] : destination.sourceMembers(snapshot, offset, limit);
+    }
+
+    public void add(String dir, String filename) {
+        Destination destination = destinations.get(dir);
+        if (destination != null && destination.add(filename)) {
+            notifyChanged(dir, filename, true);
+        }
+    }
+
+    public void remove(String dir, String filename) {
+        Destination destination = destinations.get(dir);
+        if (destination != null && destination.remove(filename)) {
+            notifyChanged(dir, filename, false);
+        }
+    }
+
+    private void notifyChanged(String dir, String filename, boolean member) {
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.membershipChanged(dir, filename, member);
+            } catch (RuntimeException e) {
+                logger.error("Membership listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void scan(Destination destination) {
+        File dir = destination.dir.toFile();
+        String[] names = dir.isDirectory() ? IoMetrics.list(dir, (d, name) -> imageFilter.test(name), IoMetrics.DESTINATION) : null;
+        destination.reset(names == null ? Collections.emptyList() : Arrays.asList(names));
+        logger.info("Indexed {} images in destination {}", destination.count(), destination.dir);
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.destinationReset(destination.name);
+            } catch (RuntimeException e) {
+                logger.error("Membership listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void watch(Destination destination) {
+        if (!destination.dir.toFile().isDirectory()) {
+            logger.warn("Destination directory does not exist, not watching: {}", destination.dir);
+            return;
+        }
+        try {
+            if (watchService == null) {
+                WatchService service = FileSystems.getDefault().newWatchService();
+                watchService = service;
+                Thread watcher = new Thread(() -> processEvents(service), "membership-watcher");
+                watcher.setDaemon(true);
+                watcher.start();
+            }
+            WatchKey key = destination.dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            watchKeys.put(key, destination);
+        } catch (IOException e) {
+            logger.warn("Could not watch destination {}: {}", destination.dir, e.getMessage());
+        }
+    }
+
+    // Reconciles changes made outside the app (Drive sync, Finder, other tools).
+    private void processEvents(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Destination destination = watchKeys.get(key);
+            if (destination != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        logger.info("Watch overflow on {}, rescanning", destination.dir);
+                        scan(destination);
+                        continue;
+                    }
+                    String name = event.context().toString();
+                    if (!imageFilter.test(name)) {
+                        continue;
+                    }
+                    // Re-check the disk: create/delete pairs can arrive out of order with our own copies
+                    boolean present = IoMetrics.exists(destination.dir.resolve(name).toFile(), IoMetrics.DESTINATION);
+                    if (present ? destination.add(name) : destination.remove(name)) {
+                        notifyChanged(destination.name, name, present);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                watchKeys.remove(key);
+                if (destination != null) {
+                    logger.warn("Stopped watching destination {}", destination.dir);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing watch service: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+
+    private final class Destination {
+        // The directory string callers know this destination by
+        private final String name;
+        private final Path dir;
+        // Replaced as a whole when the catalog changes or the folder is re-read, so readers never
+        // see bits from one layout with indices from another; changed in place only under the lock
+        private volatile Members members = new Members(catalog);
+        private volatile int count;
+
+        Destination(String dir) {
+            this.name = dir;
+            this.dir = Paths.get(dir);
+        }
+
+        synchronized void reset(Collection<String> names) {
+            Members fresh = new Members(catalog);
+            int added = 0;
+            for (String filename : names) {
+                if (fresh.add(filename)) {
+                    added++;
+                }
+            }
+            members = fresh;
+            count = added;
+        }
+
+        // Lookups take no lock unless the catalog moved on since the members were laid out
+        Members current() {
+            Members current = members;
+            return current.view == catalog ? current : sync();
+        }
+
+        // Brings the bits in line with the latest catalog: appended photos may turn stray files
+        // into members, and a reorder moves every member to its new index.
+        synchronized Members sync() {
+            CatalogSnapshot latest = catalog;
+            Members previous = members;
+            if (latest == previous.view) {
+                return previous;
+            }
+            Members next = new Members(latest);
+            boolean relayout = latest.getLayout() != previous.view.getLayout();
+            List<String> photos = previous.view.getPhotos();
+            for (int i = previous.nextSetBit(0); i >= 0; i = previous.nextSetBit(i + 1)) {
+                if (!relayout && i < latest.size()) {
+                    next.set(i);
+                    continue;
+                }
+                int index = latest.indexOf(photos.get(i));
+                if (index >= 0) {
+                    next.set(index);
+                } else {
+                    next.foreign.add(previous.view.destinationOf(photos.get(i)));
+                }
+            }
+            previous.foreign.forEach(next::add);
+            members = next;
+            return next;
+        }
+
+        boolean contains(String filename) {
+            return current().contains(filename);
+        }
+
+        int count() {
+            return count;
+        }
+
+        int sourceMemberCount() {
+            return count - current().foreign.size();
+        }
+
+        int[] sourceMembers(CatalogSnapshot snapshot, int offset, int limit) {
+            Members current = current();
+            int[] page = new int[Math.max(0, Math.min(limit, sourceMemberCount() - offset))];
+            if (current.view.getLayout() != snapshot.getLayout()) {
+                return remapped(current, snapshot, offset, page);
+            }
+            // Same layout: indices agree, the snapshot may just not have the newest photos yet.
+            // Whole words before the page are skipped by their bit count, so a deep page stays cheap.
+            int word = 0;
+            int skipped = 0;
+            for (int bits; word < current.bits.length() && skipped + (bits = Long.bitCount(current.bits.get(word))) <= offset; word++) {
+                skipped += bits;
+            }
+            int filled = 0;
+            for (int i = current.nextSetBit(word << 6); i >= 0 && i < snapshot.size() && filled < page.length; i = current.nextSetBit(i + 1)) {
+                if (skipped++ >= offset) {
+                    page[filled++] = i;
+                }
+            }
+            return filled == page.length ? page : Arrays.copyOf(page, filled);
+        }
+
+        // The caller's snapshot orders photos differently (a reorder happened on one side):
+        // look every member up by name, then page through them in the snapshot's order
+        private int[] remapped(Members current, CatalogSnapshot snapshot, int offset, int[] page) {
+            List<String> photos = current.view.getPhotos();
+            int[] indices = new int[sourceMemberCount()];
+            int found = 0;
+            for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+                int index = snapshot.indexOf(photos.get(i));
+                if (index >= 0 && found < indices.length) {
+                    indices[found++] = index;
+                }
+            }
+            Arrays.sort(indices, 0, found);
+            int filled = Math.max(0, Math.min(page.length, found - offset));
+            System.arraycopy(indices, Math.min(offset, found), page, 0, filled);
+            return filled == page.length ? page : Arrays.copyOf(page, filled);
+        }
+
+        synchronized boolean add(String filename) {
+            boolean added = sync().add(filename);
+            if (added) {
+                count++;
+            }
+            return added;
+        }
+
+        synchronized boolean remove(String filename) {
+            boolean removed = sync().remove(filename);
+            if (removed) {
+                count--;
+            }
+            return removed;
+        }
+    }
+
+    // Member bits for one catalog layout plus the stray files; safe to read without locking
+    private static final class Members {
+        private final CatalogSnapshot view;
+        private final AtomicLongArray bits;
+        // Images in the folder that are not (or no longer) part of the source set
+        private final Set<String> foreign = ConcurrentHashMap.newKeySet();
+
+        Members(CatalogSnapshot view) {
+            this.view = view;
+            this.bits = new AtomicLongArray((view.size() + 63) >>> 6);
+        }
+
+        boolean contains(String filename) {
+            int index = view.indexOfDestination(filename);
+            return index >= 0 ? (bits.get(index >>> 6) & (1L << index)) != 0 : foreign.contains(filename);
+        }
+
+        boolean add(String filename) {
+            int index = view.indexOfDestination(filename);
+            return index >= 0 ? set(index) : foreign.add(filename);
+        }
+
+        boolean remove(String filename) {
+            int index = view.indexOfDestination(filename);
+            if (index < 0) {
+                return foreign.remove(filename);
+            }
+            long mask = 1L << index;
+            return (bits.getAndAccumulate(index >>> 6, mask, (word, bit) -> word & ~bit) & mask) != 0;
+        }
+
+        boolean set(int index) {
+            long mask = 1L << index;
+            return (bits.getAndAccumulate(index >>> 6, mask, (word, bit) -> word | bit) & mask) == 0;
+        }
+
+        int nextSetBit(int from) {
+            int w = from >>> 6;
+            if (w >= bits.length()) {
+                return -1;
+            }
+            long word = bits.get(w) & (-1L << from);
+            while (word == 0) {
+                if (++w == bits.length()) {
+                    return -1;
+                }
+                word = bits.get(w);
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+    }
+}
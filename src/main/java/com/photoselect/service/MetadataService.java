@@ -0,0 +1,259 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Capture time, camera, orientation and dimensions of every source photo, read from the
+ * EXIF header in parallel and cached on disk keyed by path + mtime + size, so only new or
+ * changed files are read again. Also provides the capture-time order for the catalog,
+ * which interleaves several photographers' cameras into one timeline.
+ */
+@Service
+public class MetadataService {
+    private static final Logger logger = LoggerFactory.getLogger(MetadataService.class);
+    private static final int MAGIC = 0x50534D44; // "PSMD"
+    private static final int FORMAT_VERSION = 2;
+
+    private final PhotoCatalog catalog;
+    private final Map<String, PhotoMetadata> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private ForkJoinPool pool;
+    private ExecutorService background;
+
+    // Header reads are small and I/O bound, so this can exceed the core count
+    @Value("${photos.metadata.threads:8}")
+    private int threads;
+
+    @Value("${photos.metadata.cache-file:${user.home}/.photoselect/metadata.bin}")
+    private String cacheFile;
+
+    @Value("${photos.catalog.order:name}")
+    private String initialOrder;
+
+    public MetadataService(PhotoCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(Math.max(1, threads));
+        background = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metadata-indexer");
+            t.setDaemon(true);
+            return t;
+        });
+        load();
+        // New photos only need their own headers read
+        catalog.addListener(snapshot -> background.execute(() -> {
+            index(snapshot.getPhotos(), false);
+            save();
+        }));
+        if (CatalogSnapshot.ORDER_CAPTURE_TIME.equals(initialOrder)) {
+            setOrder(initialOrder);
+        } else {
+            background.execute(() -> {
+                index(catalog.current().getPhotos(), true);
+                save();
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        background.shutdownNow();
+        pool.shutdownNow();
+        save();
+    }
+
+    public static boolean isSupportedOrder(String order) {
+        return CatalogSnapshot.ORDER_NAME.equals(order) || CatalogSnapshot.ORDER_CAPTURE_TIME.equals(order);
+    }
+
+    // Cached metadata only; null if the photo has not been indexed yet
+    public PhotoMetadata get(String photo) {
+        return cache.get(photo);
+    }
+
+    // Cached metadata, reading the header first if the photo is new or has changed
+    public PhotoMetadata getOrRead(String photo) {
+        PhotoMetadata metadata = cache.get(photo);
+        if (metadata == null) {
+            refresh(photo);
+            metadata = cache.get(photo);
+        }
+        return metadata;
+    }
+
+    // Metadata of the file as it is now: stat'ed, and re-read if its mtime or size changed
+    public PhotoMetadata getCurrent(String photo) {
+        refresh(photo);
+        return cache.get(photo);
+    }
+
+    // Stores a content hash computed from the file version described by basis; dropped if the
+    // entry was re-read in the meantime
+    public boolean putHash(String photo, PhotoMetadata basis, long hash) {
+        if (cache.replace(photo, basis, basis.withHash(hash))) {
+            dirty.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    public void flush() {
+        save();
+    }
+
+    // Re-sorts the catalog; capture-time ordering first brings every photo's metadata up to date
+    public synchronized CatalogSnapshot setOrder(String order) {
+        if (CatalogSnapshot.ORDER_CAPTURE_TIME.equals(order)) {
+            index(catalog.current().getPhotos(), true);
+            save();
+            return catalog.reorder(order, Comparator.comparingLong(this::sortTime).thenComparing(Comparator.naturalOrder()));
+        }
+        if (CatalogSnapshot.ORDER_NAME.equals(order)) {
+            return catalog.reorder(order, Comparator.naturalOrder());
+        }
+        throw new IllegalArgumentException("Unknown catalog order: " + order);
+    }
+
+    // Photos without an EXIF time fall back to their file time, shifted to local wall-clock like EXIF
+    private long sortTime(String photo) {
+        PhotoMetadata metadata = getOrRead(photo);
+        if (metadata == null) {
+            return Long.MAX_VALUE;
+        }
+        if (metadata.hasCaptureTime()) {
+            return metadata.getCaptureTime();
+        }
+        return metadata.getMtime() + TimeZone.getDefault().getOffset(metadata.getMtime());
+    }
+
+    // With revalidate, every photo is stat'ed and re-read if its mtime/size changed;
+    // otherwise only photos missing from the cache are read.
+    private void index(List<String> photos, boolean revalidate) {
+        List<String> todo = revalidate ? photos : photos.stream().filter(photo -> !cache.containsKey(photo)).toList();
+        if (todo.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        AtomicInteger read = new AtomicInteger();
+        try {
+            pool.submit(() -> todo.parallelStream().forEach(photo -> {
+                if (refresh(photo)) {
+                    read.incrementAndGet();
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            logger.error("Metadata indexing failed: {}", e.getCause().getMessage());
+            return;
+        }
+        logger.info("Indexed metadata of {} photos ({} headers read) in {} ms", todo.size(), read.get(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Returns true if the header had to be read
+    private boolean refresh(String photo) {
+        Path file = catalog.resolve(photo);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            long mtime = attrs.lastModifiedTime().toMillis();
+            PhotoMetadata cached = cache.get(photo);
+            if (cached != null && cached.matches(mtime, attrs.size())) {
+                return false;
+            }
+            cache.put(photo, ExifReader.read(file, mtime, attrs.size()));
+            dirty.set(true);
+            return true;
+        } catch (IOException e) {
+            logger.debug("Could not read metadata of {}: {}", photo, e.getMessage());
+            return false;
+        }
+    }
+
+    private void load() {
+        Path file = Paths.get(cacheFile);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                logger.info("Ignoring metadata cache {}: unknown format", file);
+                return;
+            }
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                String photo = CatalogFile.readString(buf);
+                long mtime = buf.getLong();
+                long size = buf.getLong();
+                long captureTime = buf.getLong();
+                String camera = CatalogFile.readString(buf);
+                int orientation = buf.getInt();
+                int width = buf.getInt();
+                int height = buf.getInt();
+                boolean hashed = buf.get() != 0;
+                long hash = buf.getLong();
+                PhotoMetadata metadata = new PhotoMetadata(mtime, size, captureTime, camera.isEmpty() ? null : camera,
+                        orientation, width, height);
+                cache.put(photo, hashed ? metadata.withHash(hash) : metadata);
+            }
+            logger.info("Loaded metadata of {} photos from {}", count, file);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Could not read metadata cache {}: {}", file, e.toString());
+            cache.clear();
+        }
+    }
+
+    private synchronized void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Map<String, PhotoMetadata> entries = new HashMap<>(cache);
+        try {
+            CatalogFile.writeAtomically(Paths.get(cacheFile), out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, PhotoMetadata> entry : entries.entrySet()) {
+                    PhotoMetadata metadata = entry.getValue();
+                    CatalogFile.writeString(out, entry.getKey());
+                    out.writeLong(metadata.getMtime());
+                    out.writeLong(metadata.getSize());
+                    out.writeLong(metadata.getCaptureTime());
+                    CatalogFile.writeString(out, metadata.getCamera() == null ? "" : metadata.getCamera());
+                    out.writeInt(metadata.getOrientation());
+                    out.writeInt(metadata.getWidth());
+                    out.writeInt(metadata.getHeight());
+                    out.writeByte(metadata.hasHash() ? 1 : 0);
+                    out.writeLong(metadata.getHash());
+                }
+            });
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Could not write metadata cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.photoselect.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * 64-bit difference hash (dHash): the image is shrunk to 9x8 grey cells and each bit says
+ * whether a cell is brighter than its right neighbour. Frames of the same burst differ in
+ * only a few bits, so Hamming distance works as a similarity measure.
+ */
+final class PerceptualHash {
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+    // Decode at least this wide so each cell averages several pixels
+    private static final int MIN_DECODE_WIDTH = 72;
+
+    private PerceptualHash() {
+    }
+
+    // Prefers the embedded EXIF thumbnail; otherwise decodes the photo with heavy subsampling
+    static long of(Path file) throws IOException {
+        byte[] thumbnail = ExifReader.readThumbnail(file);
+        if (thumbnail != null) {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(thumbnail));
+            if (image != null) {
+                return of(image);
+            }
+        }
+        return of(decodeSmall(file));
+    }
+
+    static long of(BufferedImage image) {
+        double[][] grey = shrink(image);
+        long hash = 0;
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < COLUMNS - 1; x++) {
+                hash = (hash << 1) | (grey[y][x] > grey[y][x + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // Box-averages the image into COLUMNS x ROWS luminance cells
+    private static double[][] shrink(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[][] sums = new double[ROWS][COLUMNS];
+        int[][] counts = new int[ROWS][COLUMNS];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            int cellY = Math.min(ROWS - 1, y * ROWS / height);
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int cellX = Math.min(COLUMNS - 1, x * COLUMNS / width);
+                int rgb = row[x];
+                sums[cellY][cellX] += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                counts[cellY][cellX]++;
+            }
+        }
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < COLUMNS; x++) {
+                sums[y][x] = counts[y][x] == 0 ? 0 : sums[y][x] / counts[y][x];
+            }
+        }
+        return sums;
+    }
+
+    private static BufferedImage decodeSmall(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("No image reader for " + file.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, reader.getWidth(0) / MIN_DECODE_WIDTH);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Live list of source photos. Readers take the current {@link CatalogSnapshot} without
+ * locking; new photos dropped into the source folder (or any subfolder) are picked up from
+ * WatchService events (with a periodic rescan as a fallback) and published as a new snapshot.
+ * The folder tree of the last scan is persisted, so startup only re-lists changed folders.
+ */
+@Service
+public class PhotoCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(PhotoCatalog.class);
+    // Cards are dumped hundreds of files at a time; collect events briefly before publishing
+    private static final long EVENT_DEBOUNCE_MILLIS = 500;
+
+    @Value("${photos.source}")
+    private String sourceDir;
+
+    @Value("${photos.catalog.rescan-interval-seconds:300}")
+    private long rescanIntervalSeconds;
+
+    @Value("${photos.source.extensions:jpg,jpeg,png}")
+    private String[] extensions;
+
+    // Listing is I/O bound (often a network drive), so this can exceed the core count
+    @Value("${photos.catalog.scan-parallelism:8}")
+    private int scanParallelism;
+
+    @Value("${photos.catalog.snapshot-file:${user.home}/.photoselect/catalog.bin}")
+    private String snapshotFile;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>(CatalogSnapshot.of(0, List.of()));
+    private final List<Consumer<CatalogSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> pendingNames = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+    private boolean publishScheduled;
+    private final Map<WatchKey, String> watchKeys = new ConcurrentHashMap<>();
+    private final Set<String> watchedDirs = ConcurrentHashMap.newKeySet();
+    private WatchService watchService;
+    private SourceScanner scanner;
+    private Map<String, SourceScanner.DirEntry> tree = Collections.emptyMap();
+    // Order of the current layout; photos appended later are sorted among themselves with it
+    private Comparator<String> order = Comparator.naturalOrder();
+
+    @PostConstruct
+    void init() {
+        scanner = new SourceScanner(Paths.get(sourceDir), Arrays.asList(extensions), scanParallelism);
+        long start = System.nanoTime();
+        Map<String, SourceScanner.DirEntry> saved = CatalogFile.read(Paths.get(snapshotFile), scanner.getRoot(),
+                scanner.getExtensions());
+        if (saved != null) {
+            tree = saved;
+        }
+        List<String> photos = scanSource();
+        long reused = saved == null ? 0 : tree.entrySet().stream().filter(e -> saved.get(e.getKey()) == e.getValue()).count();
+        logger.info("Catalog loaded in {} ms ({} of {} folders reused from snapshot)",
+                (System.nanoTime() - start) / 1_000_000, reused, tree.size());
+        current.set(CatalogSnapshot.of(1, photos));
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        if (rescanIntervalSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::rescan, rescanIntervalSeconds, rescanIntervalSeconds, TimeUnit.SECONDS);
+        }
+        watchSource();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        scanner.shutdown();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing source watch service: {}", e.getMessage());
+            }
+        }
+    }
+
+    public CatalogSnapshot current() {
+        return current.get();
+    }
+
+    public void addListener(Consumer<CatalogSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public Path resolve(String photo) {
+        return scanner.getRoot().resolve(photo);
+    }
+
+    public boolean isImageFile(String name) {
+        return scanner.isImageFile(name);
+    }
+
+    // Every photo under the source folder as a relative path, sorted. Folders whose mtime
+    // is unchanged since the last scan are not listed again.
+    public synchronized List<String> scanSource() {
+        Map<String, SourceScanner.DirEntry> previous = tree;
+        Map<String, SourceScanner.DirEntry> next = scanner.scan(previous);
+        tree = next;
+        if (changed(previous, next)) {
+            CatalogFile.write(Paths.get(snapshotFile), scanner.getRoot(), scanner.getExtensions(), next);
+        }
+        watchNewFolders(next.keySet());
+        List<String> photos = SourceScanner.photos(next);
+        if (photos.isEmpty()) {
+            logger.warn("No source images found in directory: {}", sourceDir);
+        } else {
+            logger.info("Loaded {} images in {} folders from source directory {}", photos.size(), next.size(), sourceDir);
+        }
+        return photos;
+    }
+
+    private static boolean changed(Map<String, SourceScanner.DirEntry> previous, Map<String, SourceScanner.DirEntry> next) {
+        if (previous.size() != next.size()) {
+            return true;
+        }
+        for (Map.Entry<String, SourceScanner.DirEntry> entry : next.entrySet()) {
+            if (previous.get(entry.getKey()) != entry.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void rescan() {
+        try {
+            List<String> added = scanSource().stream()
+                    .filter(name -> !current.get().contains(name))
+                    .toList();
+            publish(added);
+        } catch (RuntimeException e) {
+            logger.error("Source rescan failed: {}", e.getMessage());
+        }
+    }
+
+    // Re-sorts every photo; this starts a new layout, so existing indices change
+    public synchronized CatalogSnapshot reorder(String orderName, Comparator<String> comparator) {
+        CatalogSnapshot snapshot = current.get();
+        List<String> ordered = new ArrayList<>(snapshot.getPhotos());
+        ordered.sort(comparator);
+        order = comparator;
+        CatalogSnapshot next = snapshot.reorder(orderName, ordered);
+        logger.info("Catalog version {}: {} photos ordered by {}", next.getVersion(), next.size(), orderName);
+        swap(next);
+        return next;
+    }
+
+    private synchronized void publish(Collection<String> names) {
+        CatalogSnapshot snapshot = current.get();
+        List<String> added = names.stream()
+                .filter(name -> !snapshot.contains(name))
+                .distinct()
+                .sorted(order)
+                .toList();
+        if (added.isEmpty()) {
+            return;
+        }
+        CatalogSnapshot next = snapshot.append(added);
+        logger.info("Catalog version {}: {} new photos ({} total)", next.getVersion(), added.size(), next.size());
+        swap(next);
+    }
+
+    private void swap(CatalogSnapshot next) {
+        current.set(next);
+        for (Consumer<CatalogSnapshot> listener : listeners) {
+            try {
+                listener.accept(next);
+            } catch (RuntimeException e) {
+                logger.error("Catalog listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void watchSource() {
+        if (!Paths.get(sourceDir).toFile().isDirectory()) {
+            logger.warn("Source directory does not exist, not watching: {}", sourceDir);
+            return;
+        }
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            watchService = service;
+            Thread watcher = new Thread(() -> processEvents(service), "catalog-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        } catch (IOException e) {
+            logger.warn("Could not watch source directory {}: {}", sourceDir, e.getMessage());
+            return;
+        }
+        watchNewFolders(tree.keySet());
+    }
+
+    private synchronized void watchNewFolders(Collection<String> dirs) {
+        if (watchService == null) {
+            return;
+        }
+        for (String dir : dirs) {
+            if (!watchedDirs.add(dir)) {
+                continue;
+            }
+            Path path = dir.isEmpty() ? scanner.getRoot() : scanner.getRoot().resolve(dir);
+            try {
+                watchKeys.put(path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE), dir);
+            } catch (IOException e) {
+                watchedDirs.remove(dir);
+                logger.warn("Could not watch source folder {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private void processEvents(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            String dir = watchKeys.get(key);
+            boolean rescan = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    rescan = true;
+                    continue;
+                }
+                String name = event.context().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                String photo = SourceScanner.resolve(dir, name);
+                if (scanner.getRoot().resolve(photo).toFile().isDirectory()) {
+                    rescan = true; // a new card folder: list it (and start watching it) via a rescan
+                } else if (scanner.isImageFile(name)) {
+                    pendingNames.add(photo);
+                }
+            }
+            if (rescan) {
+                scheduler.execute(this::rescan);
+            }
+            schedulePublish();
+            if (!key.reset()) {
+                watchKeys.remove(key);
+                if (dir != null) {
+                    watchedDirs.remove(dir);
+                    logger.info("Stopped watching source folder {}", dir.isEmpty() ? sourceDir : dir);
+                }
+            }
+        }
+    }
+
+    private synchronized void schedulePublish() {
+        if (pendingNames.isEmpty() || publishScheduled) {
+            return;
+        }
+        publishScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                publishScheduled = false;
+            }
+            List<String> names = new ArrayList<>(pendingNames);
+            pendingNames.removeAll(names);
+            publish(names);
+        }, EVENT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
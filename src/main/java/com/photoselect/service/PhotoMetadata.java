@@ -0,0 +1,86 @@
+package com.photoselect.service;
+
+/**
+ * What we know about a source photo from its header, plus the file mtime/size the
+ * values were read from (used to tell whether a cached entry is still valid).
+ */
+public class PhotoMetadata {
+    public static final long NO_CAPTURE_TIME = Long.MIN_VALUE;
+
+    private final long mtime;
+    private final long size;
+    // Camera-local wall-clock time (EXIF carries no zone), as epoch millis of that time in UTC
+    private final long captureTime;
+    private final String camera;
+    private final int orientation;
+    private final int width;
+    private final int height;
+    // 64-bit difference hash of the image content, once the grouping pipeline has computed it
+    private final boolean hashed;
+    private final long hash;
+
+    public PhotoMetadata(long mtime, long size, long captureTime, String camera, int orientation, int width, int height) {
+        this(mtime, size, captureTime, camera, orientation, width, height, false, 0);
+    }
+
+    private PhotoMetadata(long mtime, long size, long captureTime, String camera, int orientation, int width, int height,
+                          boolean hashed, long hash) {
+        this.mtime = mtime;
+        this.size = size;
+        this.captureTime = captureTime;
+        this.camera = camera;
+        this.orientation = orientation;
+        this.width = width;
+        this.height = height;
+        this.hashed = hashed;
+        this.hash = hash;
+    }
+
+    public PhotoMetadata withHash(long hash) {
+        return new PhotoMetadata(mtime, size, captureTime, camera, orientation, width, height, true, hash);
+    }
+
+    public long getMtime() {
+        return mtime;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean hasCaptureTime() {
+        return captureTime != NO_CAPTURE_TIME;
+    }
+
+    public long getCaptureTime() {
+        return captureTime;
+    }
+
+    public String getCamera() {
+        return camera;
+    }
+
+    public int getOrientation() {
+        return orientation;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean hasHash() {
+        return hashed;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    boolean matches(long fileMtime, long fileSize) {
+        return mtime == fileMtime && size == fileSize;
+    }
+}
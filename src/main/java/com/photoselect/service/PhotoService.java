@@ -1,81 +1,103 @@
 package com.photoselect.service;
 
 
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FileCopyUtils;
 import com.photoselect.exception.PhotoNotFoundException;
 import com.photoselect.exception.PhotoOperationException;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class PhotoService {
     private static final Logger logger = LoggerFactory.getLogger(PhotoService.class);
+    private static final Pattern IMAGE_PATTERN = Pattern.compile(".*\\.(jpg|jpeg|png)$");
+
+    private final MembershipIndex membershipIndex;
+    private final CopyEngine copyEngine;
+    private final PhotoCatalog catalog;
+    private final DecisionJournal decisionJournal;
+    private final CategoryRegistry categoryRegistry;
+
     @Value("${photos.source}")
     private String sourceDir;
 
     @Value("${photos.dest}")
     private String destDir;
 
-    @Value("${photos.dest.haldi}")
-    private String haldiDir;
-
-    @Value("${photos.dest.mehendi}")
-    private String mehendiDir;
-
-    @Value("${photos.dest.tilak}")
-    private String tilakDir;
+    public PhotoService(MembershipIndex membershipIndex, CopyEngine copyEngine, PhotoCatalog catalog,
+                        DecisionJournal decisionJournal, CategoryRegistry categoryRegistry) {
+        this.membershipIndex = membershipIndex;
+        this.copyEngine = copyEngine;
+        this.catalog = catalog;
+        this.decisionJournal = decisionJournal;
+        this.categoryRegistry = categoryRegistry;
+    }
 
-    @Value("${photos.dest.jaimala}")
-    private String jaimalaDir;
+    @PostConstruct
+    void init() {
+        List<String> destinations = new ArrayList<>();
+        destinations.add(destDir);
+        destinations.addAll(getCategoryDirs().values());
+        getCategoryDirs().forEach((name, path) -> {
+            if (!new File(path).isDirectory()) {
+                logger.warn("Category directory for '{}' does not exist: {}", name, path);
+            }
+        });
+        membershipIndex.setImageFilter(catalog::isImageFile);
+        membershipIndex.rebuild(catalog.current(), destinations);
+        catalog.addListener(membershipIndex::onCatalogChanged);
+        copyEngine.recover();
+        decisionJournal.recover();
+    }
 
-    @Value("${photos.dest.shaadi}")
-    private String shaadiDir;
+    static boolean isImageFile(String name) {
+        return IMAGE_PATTERN.matcher(name.toLowerCase()).matches();
+    }
 
-    @Value("${photos.dest.vidai}")
-    private String vidaiDir;
+    // Snapshot of the source list; callers should hold on to one snapshot per request
+    public List<String> getSourcePhotos() {
+        return catalog.current().getPhotos();
+    }
 
-    @Value("${photos.dest.barat}")
-    private String baratDir;
+    public CatalogSnapshot getCatalog() {
+        return catalog.current();
+    }
 
-    @Value("${photos.dest.matkor}")
-    private String matkorDir;
+    // O(1) filename -> source index lookup; -1 if the file is not a source photo
+    public int indexOf(String filename) {
+        return catalog.current().indexOf(filename);
+    }
 
     public List<String> getAllSourcePhotos() {
-    File src = new File(sourceDir);
-    String[] files = src.list((d, name) -> name.toLowerCase().matches(".*\\.(jpg|jpeg|png)$"));
-    if (files == null) {
-        logger.warn("No source images found in directory: {}", sourceDir);
-        return Collections.emptyList();
-    }
-    logger.info("Loaded {} images from source directory {}", files.length, sourceDir);
-    return Arrays.stream(files).sorted().collect(Collectors.toList());
+    return catalog.scanSource();
     }
 
     public int getSelectedCount() {
-    File dst = new File(destDir);
-    String[] selected = dst.list((d, name) -> name.toLowerCase().matches(".*\\.(jpg|jpeg|png)$"));
-    int count = selected == null ? 0 : selected.length;
-    logger.info("Selected images count: {}", count);
+    int count = membershipIndex.count(destDir);
+    logger.debug("Selected images count: {}", count);
     return count;
     }
 
     public boolean isPhotoSelected(String filename) {
-    File dst = new File(destDir, filename);
-    boolean exists = dst.exists();
+    boolean exists = membershipIndex.contains(destDir, catalog.current().destinationOf(filename));
     logger.debug("Photo '{}' selected: {}", filename, exists);
     return exists;
     }
 
+    public File getSourceFile(String filename) {
+        return new File(sourceDir, filename);
+    }
+
     public File getPhotoFile(String filename) {
         File file = new File(sourceDir, filename);
-        if (!file.exists()) {
+        if (!IoMetrics.exists(file, IoMetrics.SOURCE)) {
             logger.warn("Requested photo not found: {}", filename);
             throw new PhotoNotFoundException("Photo not found: " + filename);
         }
@@ -83,34 +105,45 @@ public class PhotoService {
         return file;
     }
 
-    public void selectPhoto(String filename) throws IOException {
+    // The copy itself runs in the background; the returned job is null if the photo is already selected.
+    public CopyJob selectPhoto(String filename) {
         File src = new File(sourceDir, filename);
-        File dst = new File(destDir, filename);
-        if (!src.exists()) {
+        if (!IoMetrics.exists(src, IoMetrics.SOURCE)) {
             logger.error("Source photo not found: {}", filename);
             throw new PhotoNotFoundException("Source photo not found: " + filename);
         }
-        if (!dst.exists()) {
-            try {
-                FileCopyUtils.copy(src, dst);
-                logger.info("Copied photo '{}' to selected folder.", filename);
-            } catch (IOException e) {
-                logger.error("Failed to copy photo '{}': {}", filename, e.getMessage());
-                throw new PhotoOperationException("Failed to copy photo: " + filename);
-            }
-        } else {
+        String target = catalog.current().destinationOf(filename);
+        if (membershipIndex.contains(destDir, target) && !copyEngine.isActive(destDir, target)) {
             logger.info("Photo '{}' already exists in selected folder.", filename);
+            return null;
         }
+        if (decisionJournal.isEnabled()) {
+            return journal(src, destDir, target, "selected");
+        }
+        CopyJob job = copyEngine.submit(src, destDir, target, "selected");
+        logger.info("Queued copy of photo '{}' to selected folder (job {}).", filename, job.getId());
+        return job;
     }
 
     public boolean deleteSelectedPhoto(String filename) {
-        File dst = new File(destDir, filename);
-        if (!dst.exists()) {
+        String target = catalog.current().destinationOf(filename);
+        if (decisionJournal.isEnabled()) {
+            return unjournal(filename, destDir, target, "selected");
+        }
+        File dst = new File(destDir, target);
+        boolean cancelled = copyEngine.cancel(destDir, target);
+        if (!IoMetrics.exists(dst, IoMetrics.SELECTED)) {
+            membershipIndex.remove(destDir, target);
+            if (cancelled) {
+                logger.info("Cancelled pending copy of '{}' to selected folder.", filename);
+                return true;
+            }
             logger.warn("Photo to delete not found in selected folder: {}", filename);
             throw new PhotoNotFoundException("Photo not found in selected folder: " + filename);
         }
-        boolean deleted = dst.delete();
+        boolean deleted = IoMetrics.delete(dst, IoMetrics.SELECTED);
         if (deleted) {
+            membershipIndex.remove(destDir, target);
             logger.info("Deleted photo '{}' from selected folder.", filename);
         } else {
             logger.error("Failed to delete photo '{}' from selected folder.", filename);
@@ -119,92 +152,114 @@ public class PhotoService {
         return deleted;
     }
 
-    public void copyToCategory(String filename, String categoryPath, String categoryName) {
-        // Validate category path exists
+    public CopyJob copyToCategory(String filename, String categoryPath, String categoryName) {
+        // Journal mode leaves the folder alone until materialization; it was checked at startup
         File categoryDir = new File(categoryPath);
-        if (!categoryDir.exists() || !categoryDir.isDirectory()) {
+        if (!decisionJournal.isEnabled()
+                && (!IoMetrics.exists(categoryDir, IoMetrics.CATEGORY) || !categoryDir.isDirectory())) {
             logger.error("Category directory does not exist: {}", categoryPath);
             throw new PhotoOperationException("Category directory '" + categoryName + "' does not exist at: " + categoryPath);
         }
 
         // Validate source file exists
         File src = new File(sourceDir, filename);
-        if (!src.exists()) {
+        if (!IoMetrics.exists(src, IoMetrics.SOURCE)) {
             logger.error("Source photo not found: {}", filename);
             throw new PhotoNotFoundException("Source photo not found: " + filename);
         }
 
-        // Copy file to category folder (don't replace if exists)
-        File dst = new File(categoryPath, filename);
-        if (!dst.exists()) {
-            try {
-                FileCopyUtils.copy(src, dst);
-                logger.info("Copied photo '{}' to category '{}' folder.", filename, categoryName);
-            } catch (IOException e) {
-                logger.error("Failed to copy photo '{}' to category '{}': {}", filename, categoryName, e.getMessage());
-                throw new PhotoOperationException("Failed to copy photo to " + categoryName + ": " + filename);
-            }
-        } else {
+        // Queue copy to category folder (don't replace if exists)
+        String target = catalog.current().destinationOf(filename);
+        if (membershipIndex.contains(categoryPath, target) && !copyEngine.isActive(categoryPath, target)) {
             logger.info("Photo '{}' already exists in category '{}' folder.", filename, categoryName);
+            return null;
+        }
+        if (decisionJournal.isEnabled()) {
+            return journal(src, categoryPath, target, categoryName);
         }
+        CopyJob job = copyEngine.submit(src, categoryPath, target, categoryName);
+        logger.info("Queued copy of photo '{}' to category '{}' folder (job {}).", filename, categoryName, job.getId());
+        return job;
     }
 
-    public String getHaldiDir() {
-        return haldiDir;
+    // Journal mode: the decision is logged and the index updated; the copy waits for materialization
+    private CopyJob journal(File src, String dir, String target, String label) {
+        decisionJournal.record(dir, target, src, label, true);
+        CopyJob job = new CopyJob(UUID.randomUUID().toString(), src, dir, target, label);
+        job.setStatus(CopyJob.Status.JOURNALED);
+        logger.info("Journaled copy of '{}' to {} folder.", target, label);
+        return job;
     }
 
-    public String getMehendiDir() {
-        return mehendiDir;
+    private boolean unjournal(String filename, String dir, String target, String label) {
+        if (!membershipIndex.contains(dir, target)) {
+            logger.warn("Photo to delete not found in {} folder: {}", label, filename);
+            throw new PhotoNotFoundException("Photo not found in " + label + " folder: " + filename);
+        }
+        decisionJournal.record(dir, target, null, label, false);
+        logger.info("Journaled removal of '{}' from {} folder.", filename, label);
+        return true;
     }
 
-    public String getTilakDir() {
-        return tilakDir;
+    public Map<String, String> getCategoryDirs() {
+        return categoryRegistry.dirs();
     }
 
-    public String getJaimalaDir() {
-        return jaimalaDir;
+    public String getSelectedDir() {
+        return destDir;
     }
 
-    public String getShaadiDir() {
-        return shaadiDir;
+    // Null for unknown categories
+    public CategoryRegistry.Category getCategory(String category) {
+        return categoryRegistry.get(category);
     }
 
-    public String getVidaiDir() {
-        return vidaiDir;
+    public String getCategoryPath(String category) {
+        CategoryRegistry.Category registered = categoryRegistry.get(category);
+        return registered == null ? null : registered.dir;
     }
 
-    public String getBaratDir() {
-        return baratDir;
+    public Map<String, Integer> getCategoryCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        getCategoryDirs().forEach((name, path) -> counts.put(name, getCategoryCount(path)));
+        return counts;
     }
 
-    public String getMatkorDir() {
-        return matkorDir;
+    public Map<String, Boolean> getCategoryMemberships(String filename) {
+        Map<String, Boolean> memberships = new LinkedHashMap<>();
+        getCategoryDirs().forEach((name, path) -> memberships.put(name, isPhotoInCategory(filename, path)));
+        return memberships;
     }
 
     public int getCategoryCount(String categoryPath) {
-        File dir = new File(categoryPath);
-        if (!dir.exists() || !dir.isDirectory()) {
-            return 0;
-        }
-        String[] files = dir.list((d, name) -> name.toLowerCase().matches(".*\\.(jpg|jpeg|png)$"));
-        return files == null ? 0 : files.length;
+        return membershipIndex.count(categoryPath);
     }
 
     public boolean isPhotoInCategory(String filename, String categoryPath) {
-        File file = new File(categoryPath, filename);
-        boolean exists = file.exists();
+        boolean exists = membershipIndex.contains(categoryPath, catalog.current().destinationOf(filename));
         logger.debug("Photo '{}' in category: {}", filename, exists);
         return exists;
     }
 
     public boolean deleteFromCategory(String filename, String categoryPath, String categoryName) {
-        File file = new File(categoryPath, filename);
-        if (!file.exists()) {
+        String target = catalog.current().destinationOf(filename);
+        if (decisionJournal.isEnabled()) {
+            return unjournal(filename, categoryPath, target, categoryName);
+        }
+        File file = new File(categoryPath, target);
+        boolean cancelled = copyEngine.cancel(categoryPath, target);
+        if (!IoMetrics.exists(file, IoMetrics.CATEGORY)) {
+            membershipIndex.remove(categoryPath, target);
+            if (cancelled) {
+                logger.info("Cancelled pending copy of '{}' to {} folder.", filename, categoryName);
+                return true;
+            }
             logger.warn("Photo to delete not found in {} folder: {}", categoryName, filename);
             throw new PhotoNotFoundException("Photo not found in " + categoryName + " folder: " + filename);
         }
-        boolean deleted = file.delete();
+        boolean deleted = IoMetrics.delete(file, IoMetrics.CATEGORY);
         if (deleted) {
+            membershipIndex.remove(categoryPath, target);
             logger.info("Deleted photo '{}' from {} folder.", filename, categoryName);
         } else {
             logger.error("Failed to delete photo '{}' from {} folder.", filename, categoryName);
@@ -213,12 +268,21 @@ public class PhotoService {
         return deleted;
     }
 
+    public int getCategoryMemberCount(String categoryPath) {
+        return membershipIndex.sourceMemberCount(categoryPath);
+    }
+
+    // Indices are into the given snapshot, so they name the right photos even across a reorder
+    public int[] getCategoryMemberIndices(String categoryPath, CatalogSnapshot snapshot, int offset, int limit) {
+        return membershipIndex.sourceMembers(categoryPath, snapshot, offset, limit);
+    }
+
     public List<String> getCategoryPhotos(String categoryPath) {
         File dir = new File(categoryPath);
         if (!dir.exists() || !dir.isDirectory()) {
             return Collections.emptyList();
         }
-        String[] files = dir.list((d, name) -> name.toLowerCase().matches(".*\\.(jpg|jpeg|png)$"));
+        String[] files = IoMetrics.list(dir, (d, name) -> catalog.isImageFile(name), IoMetrics.CATEGORY);
         if (files == null) {
             return Collections.emptyList();
         }
@@ -0,0 +1,226 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-ahead cache for image responses. Culling is sequential, so when photo i is
+ * served the next few (and optionally the previous) are read into direct buffers,
+ * outside the Java heap, and handed out from memory when the browser asks for them.
+ *
+ * <p>Entries are keyed by path and width only. The loader records the source's mtime and size,
+ * and {@link #get} compares them with the ones the request already has for its validator, so
+ * neither a lookup nor a prefetch stats anything on the request thread.
+ */
+@Service
+public class PrefetchCache {
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchCache.class);
+
+    @Value("${photos.prefetch.ahead:3}")
+    private int ahead;
+
+    @Value("${photos.prefetch.behind:1}")
+    private int behind;
+
+    @Value("${photos.prefetch.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${photos.prefetch.max-file-bytes:67108864}")
+    private long maxFileBytes;
+
+    @Value("${photos.prefetch.threads:2}")
+    private int threads;
+
+    private final RenditionService renditionService;
+    private ExecutorService executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PrefetchCache(RenditionService renditionService) {
+        this.renditionService = renditionService;
+    }
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "prefetch-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getAhead() {
+        return ahead;
+    }
+
+    public int getBehind() {
+        return behind;
+    }
+
+    /**
+     * Returns the cached bytes for a source photo at the given width (0 for the original),
+     * or {@code null} on a miss. An entry loaded from a different version of the source
+     * (by mtime and size) is dropped and counts as a miss.
+     */
+    public Entry get(File source, int width, long lastModified, long length) {
+        Entry entry;
+        synchronized (entries) {
+            String key = key(source, width);
+            entry = entries.get(key);
+            if (entry != null && (entry.sourceModified != lastModified || entry.sourceLength != length)) {
+                entries.remove(key);
+                totalBytes -= entry.size();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    public void prefetch(List<File> sources, int width) {
+        for (File source : sources) {
+            String key = key(source, width);
+            boolean cached;
+            synchronized (entries) {
+                cached = entries.containsKey(key);
+            }
+            if (cached || !inFlight.add(key)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        load(key, source, width);
+                    } finally {
+                        inFlight.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("loads", loads.sum());
+        stats.put("evictions", evictions.sum());
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("ahead", ahead);
+        stats.put("behind", behind);
+        return stats;
+    }
+
+    private String key(File source, int width) {
+        return source.getPath() + '|' + width;
+    }
+
+    private void load(String key, File source, int width) {
+        // Stat before reading: if the source changes in between, the entry looks stale rather than current
+        long sourceModified = source.lastModified();
+        long sourceLength = source.length();
+        File served = width > 0 ? renditionService.getRendition(source, width) : source;
+        // No rendition (original is small, or the rendition pool is busy): let the request path decide
+        if (served == null || !served.isFile()) {
+            return;
+        }
+        long size = served.length();
+        if (size > maxFileBytes || size > maxBytes) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(served.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or EOF
+            }
+            buffer.flip();
+            put(key, new Entry(buffer.asReadOnlyBuffer(), served.getName(), sourceModified, sourceLength));
+            loads.increment();
+        } catch (IOException e) {
+            logger.warn("Failed to prefetch '{}': {}", source.getName(), e.getMessage());
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            totalBytes += entry.size() - (previous == null ? 0 : previous.size());
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                totalBytes -= eldest.getValue().size();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public static class Entry {
+        private final ByteBuffer buffer;
+        private final String filename;
+        // The source the bytes were read from (a rendition is derived from it)
+        private final long sourceModified;
+        private final long sourceLength;
+
+        Entry(ByteBuffer buffer, String filename, long sourceModified, long sourceLength) {
+            this.buffer = buffer;
+            this.filename = filename;
+            this.sourceModified = sourceModified;
+            this.sourceLength = sourceLength;
+        }
+
+        // Each caller gets its own position/limit over the shared read-only bytes
+        public ByteBuffer getBuffer() {
+            return buffer.duplicate();
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public int size() {
+            return buffer.capacity();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded JPEG previews, pulled out of the photo's header without decoding any pixels, so
+ * the UI has something to show a few milliseconds after navigating while the full image is
+ * still on its way. Cached in memory by catalog index; an entry remembers which photo it was
+ * read from and that photo's mtime and size, so after a reorder or an edit it simply misses.
+ * Photos without a preview are remembered too.
+ */
+@Service
+public class PreviewService {
+    private static final Logger logger = LoggerFactory.getLogger(PreviewService.class);
+    private static final byte[] NONE = new byte[0];
+
+    @Value("${photos.preview.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${photos.preview.ahead:10}")
+    private int ahead;
+
+    @Value("${photos.preview.threads:2}")
+    private int threads;
+
+    private final PhotoCatalog catalog;
+    private ExecutorService executor;
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder absent = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PreviewService(PhotoCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "preview-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the embedded preview of the photo at {@code index} in {@code snapshot}, reading
+     * the header on a miss, or {@code null} if the photo has none. {@code lastModified} and
+     * {@code length} are the photo's current ones, as the caller read them for its validator.
+     */
+    public byte[] get(CatalogSnapshot snapshot, int index, long lastModified, long length) {
+        String photo = snapshot.getPhotos().get(index);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(index);
+        }
+        if (entry != null && entry.photo.equals(photo) && entry.modified == lastModified && entry.length == length) {
+            hits.increment();
+        } else {
+            misses.increment();
+            entry = load(index, photo, lastModified, length);
+        }
+        return entry.bytes == NONE ? null : entry.bytes;
+    }
+
+    // Reads the previews of the next photos in the background, in the order they will be viewed
+    public void prefetch(CatalogSnapshot snapshot, int index) {
+        List<String> photos = snapshot.getPhotos();
+        for (int i = index + 1; i <= index + ahead && i < photos.size(); i++) {
+            int next = i;
+            String photo = photos.get(i);
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(next);
+            }
+            if ((entry != null && entry.photo.equals(photo)) || !inFlight.add(next)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        File file = catalog.resolve(photo).toFile();
+                        load(next, photo, file.lastModified(), file.length());
+                    } finally {
+                        inFlight.remove(next);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(next);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("withoutPreview", absent.sum());
+        stats.put("evictions", evictions.sum());
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("ahead", ahead);
+        return stats;
+    }
+
+    // The photo is statted before its header is read, so an edit in between leaves a stale-looking entry
+    private Entry load(int index, String photo, long modified, long length) {
+        byte[] bytes = null;
+        long start = System.nanoTime();
+        try {
+            bytes = ExifReader.readPreview(catalog.resolve(photo));
+        } catch (IOException e) {
+            logger.debug("No preview for '{}': {}", photo, e.getMessage());
+        } finally {
+            IoMetrics.record("preview", IoMetrics.SOURCE, System.nanoTime() - start);
+        }
+        if (bytes == null) {
+            absent.increment();
+        }
+        Entry entry = new Entry(photo, modified, length, bytes == null ? NONE : bytes);
+        put(index, entry);
+        return entry;
+    }
+
+    private void put(int index, Entry entry) {
+        synchronized (entries) {
+            Entry previous = entries.put(index, entry);
+            totalBytes += entry.bytes.length - (previous == null ? 0 : previous.bytes.length);
+            Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<Integer, Entry> eldest = it.next();
+                if (eldest.getKey() == index) {
+                    continue;
+                }
+                totalBytes -= eldest.getValue().bytes.length;
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String photo;
+        final long modified;
+        final long length;
+        final byte[] bytes;
+
+        Entry(String photo, long modified, long length, byte[] bytes) {
+            this.photo = photo;
+            this.modified = modified;
+            this.length = length;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Generates downscaled JPEG renditions of source photos and keeps them in an
+ * on-disk cache bounded by total size (least recently used entries go first).
+ * Renditions carry no EXIF, so the source's orientation is applied to the pixels
+ * and widths are those of the photo as displayed.
+ */
+@Service
+public class RenditionService {
+    private static final Logger logger = LoggerFactory.getLogger(RenditionService.class);
+    private static final long GENERATION_TIMEOUT_SECONDS = 60;
+    private static final int MAX_PASS_THROUGH_ENTRIES = 100_000;
+    // Part of the cache key; bumped when renditions are generated differently (2: EXIF orientation applied)
+    private static final int FORMAT_VERSION = 2;
+
+    @Value("${photos.rendition.cache-dir:${java.io.tmpdir}/photoselect-renditions}")
+    private String cacheDir;
+
+    @Value("${photos.rendition.cache-max-bytes:2147483648}")
+    private long cacheMaxBytes;
+
+    @Value("${photos.rendition.threads:2}")
+    private int threads;
+
+    @Value("${photos.rendition.queue-size:32}")
+    private int queueSize;
+
+    @Value("${photos.rendition.quality:0.85}")
+    private float quality;
+
+    @Value("${photos.rendition.widths:320,960,1920,2560}")
+    private int[] widths;
+
+    @Value("${photos.rendition.thumbnail-width:320}")
+    private int thumbnailWidth;
+
+    private Path cachePath;
+    private ThreadPoolExecutor executor;
+    private final Map<String, Future<File>> inFlight = new ConcurrentHashMap<>();
+    // Sources already narrower than the requested width; remembered so we don't re-read their headers
+    private final Set<String> passThrough = ConcurrentHashMap.newKeySet();
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    @PostConstruct
+    void init() throws IOException {
+        Arrays.sort(widths);
+        cachePath = Paths.get(cacheDir);
+        Files.createDirectories(cachePath);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "rendition-worker");
+                    t.setDaemon(true);
+                    return t;
+                });
+        loadExistingEntries();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getThumbnailWidth() {
+        return thumbnailWidth;
+    }
+
+    /**
+     * Returns a cached rendition at least {@code requestedWidth} wide, or {@code null}
+     * when the original should be served instead (already small enough, unreadable, or
+     * the worker pool is saturated).
+     */
+    public File getRendition(File source, int requestedWidth) {
+        int width = snapWidth(requestedWidth);
+        String key = cacheKey(source, width);
+        if (passThrough.contains(key)) {
+            return null;
+        }
+        File cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        Future<File> future;
+        try {
+            future = inFlight.computeIfAbsent(key, k -> executor.submit(() -> generate(source, width, k)));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rendition queue full, serving original for {}", source.getName());
+            return null;
+        }
+        try {
+            return future.get(GENERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            logger.error("Failed to generate {}px rendition of '{}': {}", width, source.getName(), e.toString());
+            return null;
+        }
+    }
+
+    private int snapWidth(int requestedWidth) {
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    // Keyed by content identity: any change to the source (mtime or size) yields a new key,
+    // and the stale rendition simply ages out of the LRU.
+    private String cacheKey(File source, int width) {
+        String identity = source.getAbsolutePath() + '|' + source.lastModified() + '|' + source.length() + '|' + width
+                + '|' + FORMAT_VERSION;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private File lookup(String key) {
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        File file = cachePath.resolve(key + ".jpg").toFile();
+        if (file.exists()) {
+            return file;
+        }
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        return null;
+    }
+
+    private File generate(File source, int width, String key) throws IOException {
+        try {
+            long start = System.nanoTime();
+            BufferedImage scaled = readScaled(source, width);
+            if (scaled == null) {
+                if (passThrough.size() > MAX_PASS_THROUGH_ENTRIES) {
+                    passThrough.clear();
+                }
+                passThrough.add(key);
+                return null;
+            }
+            Path target = cachePath.resolve(key + ".jpg");
+            Path tmp = Files.createTempFile(cachePath, key, ".tmp");
+            try {
+                writeJpeg(scaled, tmp.toFile());
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            record(key, Files.size(target));
+            IoMetrics.record("render", IoMetrics.RENDITION, System.nanoTime() - start);
+            logger.debug("Generated {}px rendition of '{}'", width, source.getName());
+            return target.toFile();
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private BufferedImage readScaled(File source, int width) throws IOException {
+        int orientation = readOrientation(source);
+        // Orientations 5-8 are stored on their side: the displayed width is the stored height
+        boolean sideways = orientation >= 5;
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + source.getName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = sideways ? reader.getHeight(0) : reader.getWidth(0);
+                int sourceHeight = sideways ? reader.getWidth(0) : reader.getHeight(0);
+                if (sourceWidth <= width) {
+                    return null;
+                }
+                // Let the decoder skip pixels we don't need, keeping 2x headroom for a smooth downscale
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, sourceWidth / (width * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                int height = (int) Math.max(1, Math.round((double) sourceHeight * width / sourceWidth));
+                BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = scaled.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    // Scale into the stored (sideways) frame, then rotate/flip it upright
+                    int storedWidth = sideways ? height : width;
+                    int storedHeight = sideways ? width : height;
+                    g.transform(orientationTransform(orientation, storedWidth, storedHeight));
+                    g.drawImage(decoded, 0, 0, storedWidth, storedHeight, null);
+                } finally {
+                    g.dispose();
+                }
+                return scaled;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static int readOrientation(File source) {
+        try {
+            return ExifReader.readOrientation(source.toPath());
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    // Maps a w x h image stored with the given EXIF orientation onto its upright frame
+    static AffineTransform orientationTransform(int orientation, int w, int h) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);  // mirrored
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h); // upside down
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);  // mirrored, upside down
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);   // transposed
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);  // needs 90 degrees clockwise
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w); // transversed
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);  // needs 90 degrees counter-clockwise
+            default -> new AffineTransform();
+        };
+    }
+
+    private void writeJpeg(BufferedImage image, File target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void record(String key, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > cacheMaxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String evictedKey : evicted) {
+            try {
+                Files.deleteIfExists(cachePath.resolve(evictedKey + ".jpg"));
+            } catch (IOException e) {
+                logger.warn("Failed to evict rendition {}: {}", evictedKey, e.getMessage());
+            }
+        }
+    }
+
+    private void loadExistingEntries() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cachePath)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(".jpg"))
+                    .sorted(Comparator.comparingLong(p -> p.toFile().lastModified()))
+                    .toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            record(name.substring(0, name.length() - ".jpg".length()), file.toFile().length());
+        }
+        logger.info("Rendition cache at {} holds {} entries ({} bytes)", cachePath, files.size(), totalBytes);
+    }
+}
@@ -0,0 +1,250 @@
+package com.photoselect.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One session per reviewer (browser), so several people can cull the same shoot at once.
+ * Each session keeps its own cursor and the set of photos it picked into each destination;
+ * nothing here takes a lock on the request path, only atomic updates of concurrent maps.
+ *
+ * <p>Picks from different reviewers merge add-wins: a photo stays in a destination while any
+ * open session still picks it, and a reviewer removing it only withdraws their own pick. The
+ * result does not depend on the order the requests arrive in. Requests without a session
+ * behave as before and override everyone's picks.
+ */
+@Service
+public class ReviewSessions {
+    private static final Logger logger = LoggerFactory.getLogger(ReviewSessions.class);
+    public static final String HEADER = "X-Review-Session";
+
+    private final PhotoService photoService;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // destination + '/' + photo -> ids of the sessions picking it; sets are only replaced or changed inside compute()
+    private final Map<String, Set<String>> holders = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    // Sessions not heard from for this long are closed and their picks no longer hold photos in place
+    @Value("${photos.sessions.idle-minutes:720}")
+    private long idleMinutes;
+
+    public ReviewSessions(PhotoService photoService) {
+        this.photoService = photoService;
+    }
+
+    @PostConstruct
+    void init() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::closeIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    public Session open(String name) {
+        String id = UUID.randomUUID().toString();
+        String reviewer = name == null || name.isBlank() ? "Reviewer " + (sessions.size() + 1) : name.strip();
+        Session session = new Session(id, reviewer);
+        sessions.put(id, session);
+        logger.info("Review session opened for {} ({} open)", reviewer, sessions.size());
+        return session;
+    }
+
+    // Null if the id is unknown or the session has been closed
+    public Session get(String id) {
+        Session session = id == null ? null : sessions.get(id);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    public boolean close(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        holders.keySet().forEach(key -> withdraw(key, id));
+        logger.info("Review session of {} closed ({} open)", session.name, sessions.size());
+        return true;
+    }
+
+    public List<SessionView> list() {
+        return sessions.values().stream()
+                .sorted(Comparator.comparing(session -> session.createdAt))
+                .map(this::view)
+                .toList();
+    }
+
+    public SessionView view(Session session) {
+        CatalogSnapshot snapshot = photoService.getCatalog();
+        SessionView view = new SessionView(session.id, session.name);
+        Cursor cursor = session.cursor.get();
+        if (cursor != null) {
+            // Indices move when the order changes; follow the photo, not the number
+            view.index = cursor.layout == snapshot.getLayout() ? cursor.index : snapshot.indexOf(cursor.photo);
+            view.photo = cursor.photo;
+        }
+        for (Map.Entry<String, Set<String>> entry : holders.entrySet()) {
+            if (entry.getValue().contains(session.id)) {
+                String destination = entry.getKey().substring(0, entry.getKey().indexOf('/'));
+                view.picks.merge(destination, 1, Integer::sum);
+            }
+        }
+        view.idleSeconds = (System.currentTimeMillis() - session.lastSeen) / 1000;
+        return view;
+    }
+
+    // Returns false if the index is outside the current catalog
+    public boolean moveCursor(Session session, int index) {
+        CatalogSnapshot snapshot = photoService.getCatalog();
+        if (index < 0 || index >= snapshot.size()) {
+            return false;
+        }
+        session.cursor.set(new Cursor(index, snapshot.getPhotos().get(index), snapshot.getLayout()));
+        return true;
+    }
+
+    // Records that the session's reviewer wants the photo in the destination; ignored without a session
+    public void pick(String sessionId, String destination, String photo) {
+        if (get(sessionId) == null) {
+            return;
+        }
+        holders.compute(key(destination, photo), (key, ids) -> {
+            Set<String> next = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            next.add(sessionId);
+            return next;
+        });
+    }
+
+    // Takes back a pick whose copy could not be started; unlike release, never drops other sessions' picks
+    public void unpick(String sessionId, String destination, String photo) {
+        if (get(sessionId) != null) {
+            withdraw(key(destination, photo), sessionId);
+        }
+    }
+
+    /**
+     * Withdraws the session's pick and returns the names of the other reviewers still picking
+     * the photo (empty if it may be removed). Without a session every pick is dropped.
+     */
+    public List<String> release(String sessionId, String destination, String photo) {
+        String key = key(destination, photo);
+        if (get(sessionId) == null) {
+            holders.remove(key);
+            return List.of();
+        }
+        Set<String> left = withdraw(key, sessionId);
+        if (left == null) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        for (String id : left) {
+            Session other = sessions.get(id);
+            if (other != null) {
+                names.add(other.name);
+            }
+        }
+        return names;
+    }
+
+    // True if some open session picks the photo (e.g. picked again while it was being removed)
+    public boolean isPicked(String destination, String photo) {
+        return holders.containsKey(key(destination, photo));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private Set<String> withdraw(String key, String sessionId) {
+        return holders.computeIfPresent(key, (k, ids) -> {
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private void closeIdle() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        sessions.values().stream()
+                .filter(session -> session.lastSeen < cutoff)
+                .map(session -> session.id)
+                .toList()
+                .forEach(this::close);
+    }
+
+    private static String key(String destination, String photo) {
+        return destination + '/' + photo;
+    }
+
+    public static final class Session {
+        private final String id;
+        private final String name;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicReference<Cursor> cursor = new AtomicReference<>();
+        private volatile long lastSeen = createdAt;
+
+        Session(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        void touch() {
+            lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    // Position as index + photo name in the layout it was set in, replaced as a whole
+    private static final class Cursor {
+        final int index;
+        final String photo;
+        final long layout;
+
+        Cursor(int index, String photo, long layout) {
+            this.index = index;
+            this.photo = photo;
+            this.layout = layout;
+        }
+    }
+
+    public static class SessionView {
+        public String id;
+        public String name;
+        // Current photo (-1 if it is gone from the catalog); null until the reviewer first navigates
+        public Integer index;
+        public String photo;
+        // Photos this reviewer picked, per destination ("selected" or a category)
+        public Map<String, Integer> picks = new TreeMap<>();
+        public long idleSeconds;
+
+        public SessionView(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.photoselect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recursive listing of the source folder (one subfolder per camera/card). Folders are
+ * listed in parallel on a fork/join pool; a folder whose mtime matches a previous scan
+ * is not listed again, so a rescan of an unchanged tree costs one stat per folder.
+ */
+final class SourceScanner {
+    private static final Logger logger = LoggerFactory.getLogger(SourceScanner.class);
+    // Network filesystems may only keep mtimes to the second (or two); a folder listed
+    // within that window of its last change could still change without a new mtime.
+    private static final long MTIME_GRANULARITY_MILLIS = 2000;
+
+    private final Path root;
+    private final Set<String> extensions;
+    private final ForkJoinPool pool;
+
+    SourceScanner(Path root, Collection<String> extensions, int parallelism) {
+        this.root = root;
+        Set<String> normalized = new TreeSet<>();
+        for (String extension : extensions) {
+            String ext = extension.trim().toLowerCase(Locale.ROOT);
+            if (ext.startsWith(".")) {
+                ext = ext.substring(1);
+            }
+            if (!ext.isEmpty()) {
+                normalized.add(ext);
+            }
+        }
+        this.extensions = Collections.unmodifiableSet(normalized);
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    Set<String> getExtensions() {
+        return extensions;
+    }
+
+    boolean isImageFile(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && extensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // Folder path (relative, "" for the root) -> listing; unchanged folders reuse the previous entry
+    Map<String, DirEntry> scan(Map<String, DirEntry> previous) {
+        Map<String, DirEntry> tree = new ConcurrentHashMap<>();
+        if (Files.isDirectory(root)) {
+            pool.invoke(new ScanTask("", previous, tree));
+        }
+        return tree;
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Relative paths of every photo in the tree, sorted
+    static List<String> photos(Map<String, DirEntry> tree) {
+        List<String> photos = new ArrayList<>();
+        tree.forEach((dir, entry) -> {
+            for (String file : entry.files) {
+                photos.add(resolve(dir, file));
+            }
+        });
+        Collections.sort(photos);
+        return photos;
+    }
+
+    static String resolve(String dir, String name) {
+        return dir.isEmpty() ? name : dir + "/" + name;
+    }
+
+    private DirEntry list(Path dir, long mtime) throws IOException {
+        long listedAt = System.currentTimeMillis();
+        List<String> files = new ArrayList<>();
+        List<String> subdirs = new ArrayList<>();
+        // Depth 1: entries of this folder only, with their attributes from the same directory read
+        IoMetrics.time("list", IoMetrics.SOURCE, () -> Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(".")) {
+                    return FileVisitResult.CONTINUE; // hidden files, macOS "._" sidecars
+                }
+                if (attrs.isDirectory()) {
+                    subdirs.add(name);
+                } else if (isImageFile(name)) {
+                    files.add(name);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                logger.debug("Skipping unreadable entry {}: {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        }));
+        Collections.sort(files);
+        Collections.sort(subdirs);
+        return new DirEntry(mtime, listedAt, files, subdirs);
+    }
+
+    // Serializable only because ForkJoinTask is; never serialized
+    @SuppressWarnings("serial")
+    private final class ScanTask extends RecursiveAction {
+        private final String relative;
+        private final Map<String, DirEntry> previous;
+        private final Map<String, DirEntry> tree;
+
+        ScanTask(String relative, Map<String, DirEntry> previous, Map<String, DirEntry> tree) {
+            this.relative = relative;
+            this.previous = previous;
+            this.tree = tree;
+        }
+
+        @Override
+        protected void compute() {
+            Path dir = relative.isEmpty() ? root : root.resolve(relative);
+            DirEntry entry;
+            try {
+                long mtime = Files.getLastModifiedTime(dir).toMillis();
+                DirEntry cached = previous.get(relative);
+                entry = cached != null && cached.isCurrent(mtime) ? cached : list(dir, mtime);
+            } catch (IOException e) {
+                logger.warn("Could not list source folder {}: {}", dir, e.getMessage());
+                return;
+            }
+            tree.put(relative, entry);
+            List<ScanTask> subtasks = new ArrayList<>(entry.subdirs.size());
+            for (String subdir : entry.subdirs) {
+                subtasks.add(new ScanTask(resolve(relative, subdir), previous, tree));
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    static final class DirEntry {
+        final long mtime;
+        final long listedAt;
+        final List<String> files;
+        final List<String> subdirs;
+
+        DirEntry(long mtime, long listedAt, List<String> files, List<String> subdirs) {
+            this.mtime = mtime;
+            this.listedAt = listedAt;
+            this.files = List.copyOf(files);
+            this.subdirs = List.copyOf(subdirs);
+        }
+
+        boolean isCurrent(long currentMtime) {
+            return mtime == currentMtime && listedAt - mtime > MTIME_GRANULARITY_MILLIS;
+        }
+    }
+}
@@ -5,16 +5,119 @@ import { setupJump } from './jump.js';
 
 const indexRef = { value: 0 };
 const totalRef = { value: 0 };
+// Request a screen-sized rendition; double-click opens the full-resolution original
+const previewWidth = Math.round(window.screen.width * (window.devicePixelRatio || 1));
+
+// Photo state (selection + category membership) is fetched a window at a time
+const STATE_WINDOW = 20;
+const stateCache = new Map();
+const countsRef = { selected: 0, categories: {} };
+
+// Categories come from the server's configuration (/api/categories): name -> { label, button }
+const categoriesRef = new Map();
+
+// Selection/category changes (from any open browser) and new catalog versions are pushed over /api/events
+const catalogRef = { version: null, layout: null };
+
+// Each browser is one reviewer; the session survives reloads, so the place in the shoot does too
+const reviewerRef = { name: null };
+const orderSelect = document.getElementById("orderSelect");
+
+// Counts only come from the event stream, which sends absolute values for the destinations it reports
+function applyCounts(counts) {
+    for (const [destination, count] of Object.entries(counts || {})) {
+        if (destination === "selected") {
+            countsRef.selected = count;
+        } else {
+            countsRef.categories[destination] = count;
+        }
+    }
+}
+
+function setMembership(index, destination, member) {
+    const state = stateCache.get(index);
+    if (!state) {
+        return;
+    }
+    if (destination === "selected") {
+        state.selected = member;
+    } else if (state.categories) {
+        state.categories[destination] = member;
+    }
+}
+
+async function getPhotoState(index) {
+    if (!stateCache.has(index)) {
+        const batch = await PhotoApi.getPhotoStates(index, Math.min(index + STATE_WINDOW, totalRef.value));
+        batch.photos.forEach(photo => stateCache.set(photo.index, photo));
+    }
+    return stateCache.get(index);
+}
+
+function photoStatus(index, state) {
+    let status = `Photo ${index+1} of ${totalRef.value} | Selected: ${countsRef.selected}`;
+    if (state.camera || state.captureTime) {
+        status += ` | ${[state.camera, state.captureTime && state.captureTime.replace('T', ' ')].filter(Boolean).join(' · ')}`;
+    }
+    if (state.groupId != null) {
+        status += ` | Burst ${state.groupPosition}/${state.groupSize}`;
+    }
+    if (reviewerRef.name) {
+        status += ` | ${reviewerRef.name}`;
+    }
+    return status;
+}
+
+// Redraws the status line and buttons for the current photo without reloading the image
+async function renderCurrent() {
+    const index = indexRef.value;
+    if (index < 0 || index >= totalRef.value) {
+        return;
+    }
+    const state = await getPhotoState(index);
+    if (!state || index !== indexRef.value) {
+        return; // navigated away while the state was loading
+    }
+    updateStatus(photoStatus(index, state));
+    toggleDeleteBtn(state.selected);
+    updateCategoryButtons(state.categories);
+}
+
+// The preview embedded in the photo shows almost at once; the full image replaces it once it has
+// arrived. Loads for a photo the reviewer has already moved past are ignored.
+let photoLoad = 0;
+function showPhoto(index) {
+    const load = ++photoLoad;
+    const fullUrl = PhotoApi.getImageUrl(index, previewWidth);
+    let fullShown = false;
+    const full = new Image();
+    full.onload = full.onerror = () => {
+        if (load === photoLoad) {
+            fullShown = true;
+            setPhotoSrc(fullUrl); // on error this reports the failure as before
+        }
+    };
+    full.src = fullUrl;
+    const preview = new Image();
+    preview.onload = () => {
+        if (load === photoLoad && !fullShown) {
+            setPhotoSrc(preview.src);
+        }
+    };
+    preview.src = PhotoApi.getPreviewUrl(index);
+}
+
+function clearPhoto() {
+    photoLoad++;
+    photoElem.src = "";
+}
 
 async function loadPhoto() {
     if (indexRef.value >= 0 && indexRef.value < totalRef.value) {
         fadeInPhoto();
-        const imgUrl = PhotoApi.getImageUrl(indexRef.value);
-        setPhotoSrc(imgUrl);
-        const selectedCount = await PhotoApi.getSelectedCount();
-        updateStatus(`Photo ${indexRef.value+1} of ${totalRef.value} | Selected: ${selectedCount}`);
-        toggleDeleteBtn(await PhotoApi.isPhotoSelected(indexRef.value));
-        await updateCategoryButtons();
+        showPhoto(indexRef.value);
+        PhotoApi.moveCursor(indexRef.value).catch(() => {});
+        await renderCurrent();
     }
 }
 
@@ -25,51 +128,80 @@ async function selectPhoto() {
     if (indexRef.value < totalRef.value) {
         loadPhoto();
     } else {
-        photoElem.src = "";
+        clearPhoto();
         updateStatus("All photos done ✅");
         toggleDeleteBtn(false);
     }
 }
 
 async function deletePhoto() {
-    await PhotoApi.deletePhoto(indexRef.value);
+    const response = await PhotoApi.deletePhoto(indexRef.value);
+    if (!response.ok) {
+        // 409: another reviewer still picks this photo, so it stays
+        updateStatus(`❌ ${await response.text()}`);
+        return;
+    }
+    setMembership(indexRef.value, "selected", false);
     updateStatus(`🗑️ Deleted photo ${indexRef.value+1} from selected`);
     toggleDeleteBtn(false);
     loadPhoto();
 }
 
+function categoryLabel(category) {
+    return categoriesRef.get(category)?.label || category;
+}
+
 async function copyToCategory(category) {
+    const label = categoryLabel(category);
     try {
-        const categoryCapitalized = category.charAt(0).toUpperCase() + category.slice(1);
-        const apiFunctionName = `copyTo${categoryCapitalized}`;
-        
-        if (PhotoApi[apiFunctionName]) {
-            const response = await PhotoApi[apiFunctionName](indexRef.value);
-            if (response.ok) {
-                updateStatus(`✅ Copied photo ${indexRef.value+1} to ${categoryCapitalized}`);
-                // Update category counts
-                await updateCategoryCounts();
-                // Move to next photo
-                indexRef.value++;
-                if (indexRef.value < totalRef.value) {
-                    loadPhoto();
-                } else {
-                    photoElem.src = "";
-                    updateStatus("All photos done ✅");
-                    toggleDeleteBtn(false);
-                }
+        const response = await PhotoApi.copyToCategory(category, indexRef.value);
+        if (response.ok) {
+            updateStatus(`✅ Copied photo ${indexRef.value+1} to ${label}`);
+            // Move to next photo
+            indexRef.value++;
+            if (indexRef.value < totalRef.value) {
+                loadPhoto();
             } else {
-                const errorText = await response.text();
-                updateStatus(`❌ Error: ${errorText}`);
+                clearPhoto();
+                updateStatus("All photos done ✅");
+                toggleDeleteBtn(false);
             }
+        } else {
+            const errorText = await response.text();
+            updateStatus(`❌ Error: ${errorText}`);
         }
     } catch (error) {
-        updateStatus(`❌ Failed to copy to ${category}: ${error.message}`);
+        updateStatus(`❌ Failed to copy to ${label}: ${error.message}`);
     }
 }
 
+// Moves past the run of neighbouring photos that share the current photo's burst group
+async function skipStack(direction) {
+    const start = indexRef.value;
+    const state = await getPhotoState(start);
+    let index = start + direction;
+    if (state && state.groupId != null) {
+        while (index >= 0 && index < totalRef.value) {
+            const next = await getPhotoState(index);
+            if (!next || next.groupId !== state.groupId) {
+                break;
+            }
+            index += direction;
+        }
+    }
+    if (indexRef.value !== start) {
+        return; // navigated elsewhere while states were loading
+    }
+    indexRef.value = Math.max(0, Math.min(index, totalRef.value - 1));
+    loadPhoto();
+}
+
 function handleKeydown(e) {
-    if (e.code === "ArrowRight") {
+    if (e.shiftKey && e.code === "ArrowRight") {
+        skipStack(1);
+    } else if (e.shiftKey && e.code === "ArrowLeft") {
+        skipStack(-1);
+    } else if (e.code === "ArrowRight") {
         indexRef.value = Math.min(indexRef.value + 1, totalRef.value - 1);
         loadPhoto();
     } else if (e.code === "ArrowLeft") {
@@ -80,25 +212,21 @@ function handleKeydown(e) {
     }
 }
 
-async function updateCategoryCounts() {
+function updateCategoryCounts() {
     try {
-        const counts = await PhotoApi.getCategoryCounts();
+        const counts = countsRef.categories;
         const countsDisplay = document.getElementById('categoryCounts');
         if (countsDisplay && counts) {
-            const total = (counts.haldi || 0) + (counts.mehendi || 0) + (counts.tilak || 0) + 
-                         (counts.jaimala || 0) + (counts.shaadi || 0) + (counts.vidai || 0) + 
-                         (counts.barat || 0) + (counts.matkor || 0);
-            
+            let total = 0;
+            const items = [];
+            for (const [category, { label }] of categoriesRef) {
+                const count = counts[category] || 0;
+                total += count;
+                items.push(`<div class="count-item">${label}: ${count}</div>`);
+            }
             countsDisplay.innerHTML = `
                 <div class="count-title">Category Counts:</div>
-                <div class="count-item">Haldi: ${counts.haldi || 0}</div>
-                <div class="count-item">Mehendi: ${counts.mehendi || 0}</div>
-                <div class="count-item">Tilak: ${counts.tilak || 0}</div>
-                <div class="count-item">Jaimala: ${counts.jaimala || 0}</div>
-                <div class="count-item">Shaadi: ${counts.shaadi || 0}</div>
-                <div class="count-item">Vidai: ${counts.vidai || 0}</div>
-                <div class="count-item">Barat: ${counts.barat || 0}</div>
-                <div class="count-item">Matkor: ${counts.matkor || 0}</div>
+                ${items.join('')}
                 <div class="count-total">Total: ${total}</div>
             `;
         }
@@ -107,19 +235,17 @@ async function updateCategoryCounts() {
     }
 }
 
-async function updateCategoryButtons() {
-    const categories = ['haldi', 'mehendi', 'tilak', 'jaimala', 'shaadi', 'vidai', 'barat', 'matkor'];
-    for (const category of categories) {
-        const isInCategory = await PhotoApi.isInCategory(category, indexRef.value);
-        const btn = document.getElementById(`${category}Btn`);
-        if (btn) {
-            const categoryCapitalized = category.charAt(0).toUpperCase() + category.slice(1);
+function updateCategoryButtons(memberships) {
+    for (const [category, isInCategory] of Object.entries(memberships || {})) {
+        const entry = categoriesRef.get(category);
+        if (entry) {
+            const btn = entry.button;
             if (isInCategory) {
-                btn.textContent = `Delete from ${categoryCapitalized}`;
+                btn.textContent = `Delete from ${entry.label}`;
                 btn.classList.add('delete-mode');
                 btn.setAttribute('data-mode', 'delete');
             } else {
-                btn.textContent = categoryCapitalized;
+                btn.textContent = entry.label;
                 btn.classList.remove('delete-mode');
                 btn.setAttribute('data-mode', 'copy');
             }
@@ -128,8 +254,7 @@ async function updateCategoryButtons() {
 }
 
 async function handleCategoryButtonClick(category) {
-    const btn = document.getElementById(`${category}Btn`);
-    const mode = btn.getAttribute('data-mode');
+    const mode = categoriesRef.get(category)?.button.getAttribute('data-mode');
     
     if (mode === 'delete') {
         await deleteFromCategory(category);
@@ -138,27 +263,152 @@ async function handleCategoryButtonClick(category) {
     }
 }
 
+// One button per configured category, in configuration order
+async function setupCategories() {
+    const row = document.getElementById('categoryRow');
+    for (const category of await PhotoApi.getCategories()) {
+        const btn = document.createElement('button');
+        btn.className = 'category-btn';
+        btn.textContent = category.label;
+        btn.setAttribute('data-category', category.name);
+        btn.setAttribute('data-mode', 'copy');
+        btn.onclick = () => handleCategoryButtonClick(category.name);
+        row.appendChild(btn);
+        categoriesRef.set(category.name, { label: category.label, button: btn });
+        countsRef.categories[category.name] = category.count;
+    }
+}
+
 async function deleteFromCategory(category) {
     try {
-        const categoryCapitalized = category.charAt(0).toUpperCase() + category.slice(1);
         const response = await PhotoApi.deleteFromCategory(category, indexRef.value);
         if (response.ok) {
-            updateStatus(`🗑️ Deleted photo ${indexRef.value+1} from ${categoryCapitalized}`);
-            await updateCategoryCounts();
-            await updateCategoryButtons();
+            updateStatus(`🗑️ Deleted photo ${indexRef.value+1} from ${categoryLabel(category)}`);
+            setMembership(indexRef.value, category, false);
+            updateCategoryButtons(stateCache.get(indexRef.value)?.categories);
         } else {
             const errorText = await response.text();
             updateStatus(`❌ Error: ${errorText}`);
         }
     } catch (error) {
-        updateStatus(`❌ Failed to delete from ${category}: ${error.message}`);
+        updateStatus(`❌ Failed to delete from ${categoryLabel(category)}: ${error.message}`);
+    }
+}
+
+function setCatalog(catalog) {
+    catalogRef.version = catalog.version;
+    catalogRef.layout = catalog.layout;
+    totalRef.value = catalog.count;
+    orderSelect.value = catalog.order;
+    PhotoApi.setLayout(catalog.layout);
+    stateCache.clear();
+}
+
+// A new layout (the order changed) moves every photo, so find the current one again by name
+async function applyCatalog(catalog) {
+    if (catalog.version === catalogRef.version) {
+        return;
+    }
+    const relayout = catalog.layout !== catalogRef.layout;
+    const current = stateCache.get(indexRef.value);
+    const wasDone = indexRef.value >= totalRef.value;
+    setCatalog(catalog);
+    if (relayout) {
+        if (current) {
+            const index = await PhotoApi.indexOfPhoto(current.filename);
+            if (index >= 0) {
+                indexRef.value = index;
+            }
+        }
+        await loadPhoto();
+    } else if (wasDone) {
+        await loadPhoto();
+    } else {
+        await renderCurrent();
+    }
+}
+
+// Updates carry the catalog version they were built against, changed photos by index in that
+// layout, and counts; the first one after (re)connecting has every count and reload set.
+async function applyUpdate(update) {
+    applyCounts(update.counts);
+    const touchesCurrent = update.reload || update.changes.some(change => change.index === indexRef.value);
+    if (update.version !== catalogRef.version) {
+        await applyCatalog(update);
+    }
+    if (update.reload) {
+        stateCache.clear();
+    }
+    if (update.layout === catalogRef.layout) {
+        update.changes.forEach(change => setMembership(change.index, change.destination, change.member));
+    }
+    updateCategoryCounts();
+    if (touchesCurrent) {
+        await renderCurrent();
+    }
+}
+
+function connectEvents() {
+    // EventSource reconnects on its own; the server then starts over with a full snapshot
+    const events = new EventSource('/api/events');
+    let queue = Promise.resolve();
+    events.addEventListener('state', e => {
+        const update = JSON.parse(e.data);
+        queue = queue.then(() => applyUpdate(update)).catch(error => console.error('Failed to apply update:', error));
+    });
+}
+
+async function changeOrder() {
+    const order = orderSelect.value;
+    updateStatus(order === 'capture-time' ? 'Ordering by capture time…' : 'Ordering by file name…');
+    try {
+        const response = await PhotoApi.setOrder(order);
+        if (!response.ok) {
+            updateStatus(`❌ Could not change order: ${await response.text()}`);
+            return;
+        }
+        await applyCatalog(await response.json());
+    } catch (error) {
+        updateStatus(`❌ Could not change order: ${error.message}`);
+    }
+}
+
+// Resumes this browser's session, or opens one (named by ?reviewer= if given)
+async function openSession() {
+    const name = new URLSearchParams(window.location.search).get('reviewer');
+    const storedId = localStorage.getItem('reviewSession');
+    if (storedId && (!name || name === localStorage.getItem('reviewerName'))) {
+        const response = await PhotoApi.getSession(storedId);
+        if (response.ok) {
+            return await response.json();
+        }
     }
+    const response = await PhotoApi.openSession(name || localStorage.getItem('reviewerName'));
+    const session = await response.json();
+    localStorage.setItem('reviewSession', session.id);
+    localStorage.setItem('reviewerName', session.name);
+    return session;
 }
 
 async function init() {
-    totalRef.value = await PhotoApi.getTotalPhotos();
+    setCatalog(await PhotoApi.getCatalogVersion());
+    try {
+        await setupCategories();
+    } catch (error) {
+        console.error('Failed to load categories:', error);
+    }
+    try {
+        const session = await openSession();
+        reviewerRef.name = session.name;
+        PhotoApi.setSession(session.id);
+        if (session.index != null && session.index >= 0 && session.index < totalRef.value) {
+            indexRef.value = session.index;
+        }
+    } catch (error) {
+        console.error('Could not open a review session:', error);
+    }
+    connectEvents();
     setupJump(indexRef, totalRef, loadPhoto);
-    await updateCategoryCounts();
     
     // Check if there's a photo number in URL
     const urlParams = new URLSearchParams(window.location.search);
@@ -171,24 +421,18 @@ async function init() {
     }
     
     if (totalRef.value > 0) {
-        loadPhoto();
+        await loadPhoto();
+        updateCategoryCounts();
     } else {
         updateStatus("All photos done ✅");
-        photoElem.src = "";
+        clearPhoto();
         toggleDeleteBtn(false);
     }
 }
 
 document.addEventListener("keydown", handleKeydown);
 deleteBtn.onclick = deletePhoto;
-
-// Wire up category buttons
-const categoryButtons = document.querySelectorAll('.category-btn');
-categoryButtons.forEach(btn => {
-    btn.onclick = () => {
-        const category = btn.getAttribute('data-category');
-        handleCategoryButtonClick(category);
-    };
-});
+orderSelect.onchange = changeOrder;
+photoElem.ondblclick = () => window.open(PhotoApi.getImageUrl(indexRef.value), '_blank');
 
 init();
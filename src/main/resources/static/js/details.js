@@ -1,78 +1,127 @@
 // details.js - Category details page logic
 
-async function fetchCategoryDetails() {
+const PAGE_SIZE = 200;
+
+// Category name -> label, in configuration order
+const labels = new Map();
+
+async function fetchCategoryNames() {
     try {
-        const response = await fetch('/api/categoryDetails');
-        return await response.json();
+        const response = await fetch('/api/categories');
+        const categories = await response.json();
+        categories.forEach(category => labels.set(category.name, category.label));
+        return categories.map(category => category.name);
     } catch (error) {
-        console.error('Failed to fetch category details:', error);
-        return {};
+        console.error('Failed to fetch categories:', error);
+        return [];
     }
 }
 
-async function loadDetails() {
-    const details = await fetchCategoryDetails();
-    const categoriesGrid = document.getElementById('categoriesGrid');
+async function fetchCategoryPage(category, offset) {
+    const response = await fetch(`/api/categoryDetails?category=${encodeURIComponent(category)}&offset=${offset}&limit=${PAGE_SIZE}`);
+    return await response.json();
+}
+
+function displayName(category) {
+    return labels.get(category) || category;
+}
+
+function renderPhotoItems(photos, offset) {
+    return photos.map((photo, index) => `
+        <div class="photo-item">
+            <span class="photo-seq">${offset + index + 1}.</span>
+            <span class="photo-name">${photo.filename}</span>
+            <a href="/?photo=${photo.photoNumber}" class="photo-link" title="Jump to this photo">
+                Photo #${photo.photoNumber}
+            </a>
+        </div>
+    `).join('');
+}
+
+function renderSummary(totals) {
     const summaryDiv = document.getElementById('summary');
-    
-    const categoryNames = {
-        'haldi': 'Haldi',
-        'mehendi': 'Mehendi',
-        'tilak': 'Tilak',
-        'jaimala': 'Jaimala',
-        'shaadi': 'Shaadi',
-        'vidai': 'Vidai',
-        'barat': 'Barat',
-        'matkor': 'Matkor'
-    };
-    
     let totalPhotos = 0;
     let summaryHTML = '<div class="summary-grid">';
-    
-    // Create category cards
-    for (const [category, photos] of Object.entries(details)) {
-        const categoryName = categoryNames[category] || category;
-        const count = photos.length;
-        totalPhotos += count;
-        
+    for (const [category, count] of Object.entries(totals)) {
+        totalPhotos += count || 0;
         summaryHTML += `<div class="summary-item">
-            <span class="summary-label">${categoryName}:</span>
-            <span class="summary-count">${count}</span>
+            <span class="summary-label">${displayName(category)}:</span>
+            <span class="summary-count">${count === null ? '…' : count}</span>
         </div>`;
-        
-        const card = document.createElement('div');
-        card.className = 'category-card';
-        card.innerHTML = `
-            <div class="category-header">
-                <h3>${categoryName}</h3>
-                <span class="category-count">${count} photo${count !== 1 ? 's' : ''}</span>
-            </div>
-            <div class="photo-list">
-                ${photos.length > 0 
-                    ? photos.map((photo, index) => `
-                        <div class="photo-item">
-                            <span class="photo-seq">${index + 1}.</span>
-                            <span class="photo-name">${photo.filename}</span>
-                            <a href="/?photo=${photo.photoNumber}" class="photo-link" title="Jump to this photo">
-                                Photo #${photo.photoNumber}
-                            </a>
-                        </div>
-                    `).join('')
-                    : '<div class="no-photos">No photos in this category</div>'
-                }
-            </div>
-        `;
-        categoriesGrid.appendChild(card);
     }
-    
     summaryHTML += '</div>';
     summaryHTML += `<div class="summary-total">
         <span class="summary-label">Total Photos:</span>
         <span class="summary-count">${totalPhotos}</span>
+        <a href="/api/export/selected.zip" class="export-link" title="Download every selected photo as a ZIP">Selected as ZIP</a>
     </div>`;
-    
     summaryDiv.innerHTML = summaryHTML;
 }
 
-loadDetails();
+// Each card renders as soon as its first page arrives; further pages load on demand
+async function loadCategory(category, card, totals) {
+    const page = await fetchCategoryPage(category, 0);
+    totals[category] = page.total;
+    renderSummary(totals);
 
+    const count = page.total;
+    card.innerHTML = `
+        <div class="category-header">
+            <h3>${displayName(category)}</h3>
+            <span class="category-count">${count} photo${count !== 1 ? 's' : ''}</span>
+            ${count > 0 ? `<a href="/api/export/${category}.zip" class="export-link" title="Download this category as a ZIP">ZIP</a>` : ''}
+        </div>
+        <div class="photo-list">
+            ${page.photos.length > 0
+                ? renderPhotoItems(page.photos, 0)
+                : '<div class="no-photos">No photos in this category</div>'
+            }
+        </div>
+    `;
+    const list = card.querySelector('.photo-list');
+    let loaded = page.photos.length;
+    if (loaded < count) {
+        const moreBtn = document.createElement('button');
+        moreBtn.className = 'load-more-btn';
+        moreBtn.textContent = `Load more (${count - loaded} remaining)`;
+        moreBtn.onclick = async () => {
+            moreBtn.disabled = true;
+            const next = await fetchCategoryPage(category, loaded);
+            list.insertAdjacentHTML('beforeend', renderPhotoItems(next.photos, loaded));
+            loaded += next.photos.length;
+            if (loaded >= count || next.photos.length === 0) {
+                moreBtn.remove();
+            } else {
+                moreBtn.textContent = `Load more (${count - loaded} remaining)`;
+                moreBtn.disabled = false;
+            }
+        };
+        card.appendChild(moreBtn);
+    }
+}
+
+async function loadDetails() {
+    const categories = await fetchCategoryNames();
+    const categoriesGrid = document.getElementById('categoriesGrid');
+    const totals = {};
+
+    const loads = categories.map(category => {
+        totals[category] = null;
+        const card = document.createElement('div');
+        card.className = 'category-card';
+        card.innerHTML = `
+            <div class="category-header">
+                <h3>${displayName(category)}</h3>
+                <span class="category-count">Loading…</span>
+            </div>
+        `;
+        categoriesGrid.appendChild(card);
+        return loadCategory(category, card, totals).catch(error => {
+            console.error(`Failed to fetch details for ${category}:`, error);
+        });
+    });
+    renderSummary(totals);
+    await Promise.all(loads);
+}
+
+loadDetails();
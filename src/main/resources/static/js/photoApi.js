@@ -1,24 +1,42 @@
 // photoApi.js - API layer for photo operations
+
+// Image URLs carry the catalog layout: after a reorder /api/image/5 is a different photo,
+// and the browser must not answer it from its cache.
+let catalogLayout = 1;
+// Sent with select/copy/delete so the server knows which reviewer made the pick
+let reviewSession = null;
+
 const PhotoApi = {
+    setSession: id => { reviewSession = id; },
+    openSession: async name => await fetch(name ? `/api/sessions?name=${encodeURIComponent(name)}` : '/api/sessions', { method: "POST" }),
+    getSession: async id => await fetch(`/api/sessions/${id}`),
+    moveCursor: async idx => reviewSession && await fetch(`/api/sessions/${reviewSession}/cursor?index=${idx}`, { method: "PUT" }),
     getTotalPhotos: async () => await fetchJson('/api/count'),
+    getCatalogVersion: async () => await fetchJson('/api/catalog/version'),
+    setLayout: layout => { catalogLayout = layout; },
+    setOrder: async order => await fetch(`/api/catalog/order?order=${encodeURIComponent(order)}`, { method: "PUT" }),
+    indexOfPhoto: async photo => await fetchJson(`/api/catalog/indexOf?photo=${encodeURIComponent(photo)}`),
     getSelectedCount: async () => await fetchJson('/api/selectedCount'),
     isPhotoSelected: async idx => await fetchJson(`/api/isSelected/${idx}`),
-    getImageUrl: idx => `/api/image/${idx}`,
-    selectPhoto: async idx => await fetch(`/api/select/${idx}`, { method: "POST" }),
-    deletePhoto: async idx => await fetch(`/api/selected/${idx}`, { method: "DELETE" }),
-    copyToHaldi: async idx => await fetch(`/api/copyTo/haldi/${idx}`, { method: "POST" }),
-    copyToMehendi: async idx => await fetch(`/api/copyTo/mehendi/${idx}`, { method: "POST" }),
-    copyToTilak: async idx => await fetch(`/api/copyTo/tilak/${idx}`, { method: "POST" }),
-    copyToJaimala: async idx => await fetch(`/api/copyTo/jaimala/${idx}`, { method: "POST" }),
-    copyToShaadi: async idx => await fetch(`/api/copyTo/shaadi/${idx}`, { method: "POST" }),
-    copyToVidai: async idx => await fetch(`/api/copyTo/vidai/${idx}`, { method: "POST" }),
-    copyToBarat: async idx => await fetch(`/api/copyTo/barat/${idx}`, { method: "POST" }),
-    copyToMatkor: async idx => await fetch(`/api/copyTo/matkor/${idx}`, { method: "POST" }),
+    getImageUrl: (idx, width) => width ? `/api/image/${idx}?w=${width}&l=${catalogLayout}` : `/api/image/${idx}?l=${catalogLayout}`,
+    getThumbnailUrl: idx => `/api/image/${idx}?size=thumb&l=${catalogLayout}`,
+    getPreviewUrl: idx => `/api/preview/${idx}?l=${catalogLayout}`,
+    selectPhoto: async idx => await fetch(`/api/select/${idx}`, { method: "POST", headers: sessionHeaders() }),
+    deletePhoto: async idx => await fetch(`/api/selected/${idx}`, { method: "DELETE", headers: sessionHeaders() }),
+    copyToCategory: async (category, idx) => await fetch(`/api/copyTo/${encodeURIComponent(category)}/${idx}`, { method: "POST", headers: sessionHeaders() }),
+    getCategories: async () => await fetchJson('/api/categories'),
     getCategoryCounts: async () => await fetchJson('/api/categoryCounts'),
+    getGroups: async () => await fetchJson('/api/groups'),
+    getPhotoState: async idx => await fetchJson(`/api/photo/${idx}/state`),
+    getPhotoStates: async (from, to) => await fetchJson(`/api/photos/state?from=${from}&to=${to}`),
     isInCategory: async (category, idx) => await fetchJson(`/api/isInCategory/${category}/${idx}`),
-    deleteFromCategory: async (category, idx) => await fetch(`/api/deleteFrom/${category}/${idx}`, { method: "DELETE" })
+    deleteFromCategory: async (category, idx) => await fetch(`/api/deleteFrom/${encodeURIComponent(category)}/${idx}`, { method: "DELETE", headers: sessionHeaders() })
 };
 
+function sessionHeaders() {
+    return reviewSession ? { 'X-Review-Session': reviewSession } : {};
+}
+
 async function fetchJson(url, options) {
     const res = await fetch(url, options);
     return await res.json();
@@ -0,0 +1,188 @@
+package com.photoselect.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    private static final int PHOTO_SIZE = 32 * 1024;
+
+    @TempDir
+    Path tmp;
+
+    private byte[] content;
+    private Path source;
+    private Path selected;
+    private Path category;
+    private BlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[PHOTO_SIZE];
+        new Random(3).nextBytes(content);
+        source = Files.createDirectories(tmp.resolve("source"));
+        selected = Files.createDirectories(tmp.resolve("dest"));
+        category = Files.createDirectories(tmp.resolve("dest/haldi"));
+        Files.write(source.resolve("IMG_0001.jpg"), content);
+        // Same content under a second name, e.g. the same shot exported twice
+        Files.write(source.resolve("IMG_0001 copy.jpg"), content);
+        store = configure(new BlobStore());
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    private BlobStore configure(BlobStore blobStore) {
+        ReflectionTestUtils.setField(blobStore, "mode", BlobStore.MODE_DEDUPE);
+        ReflectionTestUtils.setField(blobStore, "blobDir", tmp.resolve("blobs").toString());
+        ReflectionTestUtils.setField(blobStore, "hashFile", tmp.resolve("blob-hashes.log").toString());
+        ReflectionTestUtils.setField(blobStore, "destDir", selected.toString());
+        return blobStore;
+    }
+
+    @Test
+    void sameContentIsStoredOnceAndLinkedEverywhere() throws IOException {
+        assertEquals(PHOTO_SIZE, store.materialize(source.resolve("IMG_0001.jpg"), selected.resolve("IMG_0001.jpg")));
+        assertEquals(0, store.materialize(source.resolve("IMG_0001.jpg"), category.resolve("IMG_0001.jpg")));
+        // Read once more to hash it, then linked to the blob that is already there
+        assertEquals(PHOTO_SIZE, store.materialize(source.resolve("IMG_0001 copy.jpg"), selected.resolve("IMG_0001 copy.jpg")));
+
+        assertArrayEquals(content, Files.readAllBytes(selected.resolve("IMG_0001.jpg")));
+        assertArrayEquals(content, Files.readAllBytes(category.resolve("IMG_0001.jpg")));
+        assertArrayEquals(content, Files.readAllBytes(selected.resolve("IMG_0001 copy.jpg")));
+        assertEquals(1, blobs().size());
+
+        Map<String, Object> stats = store.getStats();
+        assertEquals(1L, stats.get("blobs"));
+        assertEquals((long) PHOTO_SIZE, stats.get("blobBytes"));
+        assertEquals(3L, stats.get("linkedEntries"));
+        assertEquals(0L, stats.get("orphanBlobs"));
+        // Three entries, one of which would have been written anyway
+        assertEquals(2L * PHOTO_SIZE, stats.get("bytesSaved"));
+        assertEquals(1L, stats.get("ingested"));
+        assertEquals(2L, stats.get("reused"));
+        assertEquals(3L, stats.get("hardLinked"));
+        assertEquals(0L, stats.get("copied"));
+    }
+
+    @Test
+    void reusingABlobLeavesDeliveredEntriesUntouched() throws IOException {
+        store.materialize(source.resolve("IMG_0001.jpg"), selected.resolve("IMG_0001.jpg"));
+        FileTime delivered = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3));
+        Files.setLastModifiedTime(selected.resolve("IMG_0001.jpg"), delivered);
+
+        store.materialize(source.resolve("IMG_0001.jpg"), category.resolve("IMG_0001.jpg"));
+
+        // The entries share the blob's inode: a sync client would see any change to it on both
+        assertEquals(delivered, Files.getLastModifiedTime(selected.resolve("IMG_0001.jpg")));
+    }
+
+    @Test
+    void fallsBackToClonesThenCopiesWhereLinksFail() throws IOException {
+        Path cloning = Files.createDirectories(tmp.resolve("cloning"));
+        Path copying = Files.createDirectories(tmp.resolve("copying"));
+        BlobStore noLinks = configure(new BlobStore() {
+            @Override
+            void link(Path target, Path blob) throws IOException {
+                throw new FileSystemException(target.toString(), blob.toString(), "Invalid cross-device link");
+            }
+
+            @Override
+            boolean clone(Path blob, Path target) {
+                if (!target.getParent().equals(cloning)) {
+                    return false;
+                }
+                try {
+                    Files.copy(blob, target);
+                    return true;
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        });
+        try {
+            noLinks.materialize(source.resolve("IMG_0001.jpg"), cloning.resolve("IMG_0001.jpg"));
+            // A copy writes the photo in full again
+            assertEquals(PHOTO_SIZE, noLinks.materialize(source.resolve("IMG_0001.jpg"), copying.resolve("IMG_0001.jpg")));
+            assertArrayEquals(content, Files.readAllBytes(cloning.resolve("IMG_0001.jpg")));
+            assertArrayEquals(content, Files.readAllBytes(copying.resolve("IMG_0001.jpg")));
+
+            Map<String, Object> stats = noLinks.getStats();
+            assertEquals(0L, stats.get("hardLinked"));
+            assertEquals(1L, stats.get("cloned"));
+            assertEquals((long) PHOTO_SIZE, stats.get("clonedBytes"));
+            assertEquals(1L, stats.get("copied"));
+            assertEquals((long) PHOTO_SIZE, stats.get("copiedBytes"));
+            // Clones are counted as saved, copies are not
+            assertEquals((long) PHOTO_SIZE, stats.get("bytesSaved"));
+            assertEquals(Map.of(cloning.toAbsolutePath().toString(), "clone", copying.toAbsolutePath().toString(), "copy"),
+                    stats.get("fallbacks"));
+        } finally {
+            noLinks.shutdown();
+        }
+    }
+
+    @Test
+    void orphanSweepSkipsBlobsBeingLinked() throws IOException {
+        store.materialize(source.resolve("IMG_0001.jpg"), selected.resolve("IMG_0001.jpg"));
+        Files.delete(selected.resolve("IMG_0001.jpg"));
+        Path blob = blobs().get(0);
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+        assertEquals(1L, store.getStats().get("orphanBlobs"));
+
+        store.hold(blob);
+        store.removeOrphans();
+        assertTrue(Files.exists(blob), "a held blob was swept");
+        store.release(blob);
+
+        store.removeOrphans();
+        assertFalse(Files.exists(blob));
+        assertEquals(0L, store.getStats().get("blobs"));
+
+        // The hash is still known, but the blob is gone: stored again rather than failing
+        assertEquals(PHOTO_SIZE, store.materialize(source.resolve("IMG_0001.jpg"), category.resolve("IMG_0001.jpg")));
+        assertArrayEquals(content, Files.readAllBytes(category.resolve("IMG_0001.jpg")));
+        assertEquals(2L, store.getStats().get("ingested"));
+    }
+
+    @Test
+    void orphanSweepKeepsLinkedAndRecentBlobs() throws IOException {
+        store.materialize(source.resolve("IMG_0001.jpg"), selected.resolve("IMG_0001.jpg"));
+        Path blob = blobs().get(0);
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+        store.removeOrphans();
+        assertTrue(Files.exists(blob), "a linked blob was swept");
+
+        // Unlinked, but young enough to belong to an ingest that is about to link it
+        Files.delete(selected.resolve("IMG_0001.jpg"));
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+        store.removeOrphans();
+        assertTrue(Files.exists(blob), "a recent blob was swept");
+    }
+
+    private List<Path> blobs() throws IOException {
+        try (Stream<Path> paths = Files.walk(tmp.resolve("blobs"))) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.photoselect.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryRegistryTest {
+
+    @Test
+    void categoriesKeepConfigurationOrder() {
+        CategoryRegistry registry = new CategoryRegistry(new MockEnvironment()
+                .withProperty("photos.categories.sangeet", "/events/sangeet")
+                .withProperty("photos.categories.guest-group_2", "/events/guests")
+                .withProperty("photos.categories.selected", "/events/selected")
+                .withProperty("photos.categories.empty", " "));
+
+        assertEquals(List.of("sangeet", "guest-group_2"), List.copyOf(registry.dirs().keySet()));
+        assertEquals("Guest group 2", registry.get("Guest-Group_2").label);
+        assertNull(registry.get("selected"));
+        assertNull(registry.get("empty"));
+    }
+
+    @Test
+    void legacyDestinationKeysAreStillRead() {
+        CategoryRegistry registry = new CategoryRegistry(new MockEnvironment()
+                .withProperty("photos.dest", "/events/selected")
+                .withProperty("photos.dest.haldi", "/events/haldi")
+                .withProperty("photos.dest.vidai", "/events/vidai"));
+
+        assertEquals(Map.of("haldi", "/events/haldi", "vidai", "/events/vidai"), registry.dirs());
+        assertEquals("Haldi", registry.get("haldi").label);
+    }
+
+    @Test
+    void newKeysWinOverLegacyOnes() {
+        CategoryRegistry registry = new CategoryRegistry(new MockEnvironment()
+                .withProperty("photos.categories.haldi", "/events/haldi-2024")
+                .withProperty("photos.categories.mehendi", "")
+                .withProperty("photos.dest.haldi", "/events/haldi")
+                .withProperty("photos.dest.mehendi", "/events/mehendi")
+                .withProperty("photos.dest.tilak", "/events/tilak"));
+
+        assertEquals("/events/haldi-2024", registry.get("haldi").dir);
+        // An empty new key still drops the category
+        assertNull(registry.get("mehendi"));
+        assertEquals("/events/tilak", registry.get("tilak").dir);
+        assertEquals(List.of("haldi", "tilak"), List.copyOf(registry.dirs().keySet()));
+    }
+}
@@ -0,0 +1,110 @@
+package com.photoselect.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CopyEngineTest {
+
+    private static final int FILE_COUNT = 1000;
+    private static final int FILE_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tmp;
+
+    private Path source;
+    private List<String> names;
+    private MembershipIndex membershipIndex;
+    private CopyEngine copyEngine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        source = Files.createDirectories(tmp.resolve("source"));
+        names = new ArrayList<>();
+        byte[] data = new byte[FILE_SIZE];
+        new Random(42).nextBytes(data);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String name = String.format("IMG_%04d.jpg", i);
+            Files.write(source.resolve(name), data);
+            names.add(name);
+        }
+        membershipIndex = new MembershipIndex();
+        copyEngine = new CopyEngine(membershipIndex, new BlobStore());
+        ReflectionTestUtils.setField(copyEngine, "perDestinationConcurrency", 4);
+        ReflectionTestUtils.setField(copyEngine, "queueFile", tmp.resolve("copy-queue.log").toString());
+        copyEngine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        copyEngine.shutdown();
+        membershipIndex.close();
+    }
+
+    @Test
+    void queuedCopiesOfThousandFilesMatchSynchronousCopies() throws Exception {
+        Path syncDest = Files.createDirectories(tmp.resolve("sync"));
+        Path queuedDest = Files.createDirectories(tmp.resolve("queued"));
+        membershipIndex.rebuild(names, List.of(queuedDest.toString()));
+
+        for (String name : names) {
+            FileCopyUtils.copy(source.resolve(name).toFile(), syncDest.resolve(name).toFile());
+        }
+
+        for (String name : names) {
+            copyEngine.submit(source.resolve(name).toFile(), queuedDest.toString(), name, "queued");
+        }
+        assertTrue(copyEngine.awaitIdle(2, TimeUnit.MINUTES), "copy queue did not drain");
+
+        for (String name : names) {
+            File copied = queuedDest.resolve(name).toFile();
+            assertTrue(copied.isFile(), "missing " + name);
+            assertArrayEquals(Files.readAllBytes(syncDest.resolve(name)), Files.readAllBytes(copied.toPath()));
+        }
+        assertEquals(FILE_COUNT, membershipIndex.count(queuedDest.toString()));
+        assertTrue(copyEngine.getJobs(CopyJob.Status.FAILED).isEmpty());
+        try (var leftovers = Files.list(queuedDest)) {
+            assertEquals(FILE_COUNT, leftovers.count(), "temporary files left behind");
+        }
+    }
+
+    @Test
+    void cancelledCopyIsRolledBack() throws Exception {
+        Path dest = Files.createDirectories(tmp.resolve("cancel"));
+        membershipIndex.rebuild(names, List.of(dest.toString()));
+        // Hold every copy to this destination until the cancel has happened
+        Semaphore gate = new Semaphore(0);
+        copyEngine.setDestinationPermits(dest.toString(), gate);
+
+        List<String> batch = names.subList(0, 50);
+        for (String name : batch) {
+            copyEngine.submit(source.resolve(name).toFile(), dest.toString(), name, "cancel");
+        }
+        String last = batch.get(batch.size() - 1);
+        assertTrue(membershipIndex.contains(dest.toString(), last));
+        assertTrue(copyEngine.cancel(dest.toString(), last));
+        gate.release();
+        assertTrue(copyEngine.awaitIdle(1, TimeUnit.MINUTES));
+
+        assertFalse(dest.resolve(last).toFile().exists());
+        assertFalse(copyEngine.isActive(dest.toString(), last));
+        assertFalse(membershipIndex.contains(dest.toString(), last));
+        assertTrue(dest.resolve(batch.get(0)).toFile().isFile());
+        assertEquals(batch.size() - 1, membershipIndex.count(dest.toString()));
+    }
+}
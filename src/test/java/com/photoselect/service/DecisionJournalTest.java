@@ -0,0 +1,150 @@
+package com.photoselect.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionJournalTest {
+
+    private static final int PHOTO_COUNT = 400;
+
+    @TempDir
+    Path tmp;
+
+    private List<String> names;
+    private String selected;
+    private String haldi;
+    private Path journalFile;
+    private MembershipIndex membershipIndex;
+    private DecisionJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        names = new ArrayList<>();
+        for (int i = 0; i < PHOTO_COUNT; i++) {
+            names.add(String.format("IMG_%04d.jpg", i));
+        }
+        selected = Files.createDirectories(tmp.resolve("dest")).toString();
+        haldi = Files.createDirectories(tmp.resolve("dest/haldi")).toString();
+        journalFile = tmp.resolve("decisions.log");
+        start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.shutdown();
+        membershipIndex.close();
+    }
+
+    // A fresh run: the index is built from the folders, then the journal is replayed on top
+    private void start() {
+        membershipIndex = new MembershipIndex();
+        membershipIndex.rebuild(names, List.of(selected, haldi));
+        // Never materialized here, so no copy engine is needed
+        journal = new DecisionJournal(membershipIndex, null);
+        ReflectionTestUtils.setField(journal, "mode", DecisionJournal.MODE_JOURNAL);
+        ReflectionTestUtils.setField(journal, "journalFile", journalFile.toString());
+        journal.init();
+        journal.recover();
+    }
+
+    private void restart() {
+        journal.shutdown();
+        membershipIndex.close();
+        start();
+    }
+
+    private File source(String name) {
+        return tmp.resolve("source").resolve(name).toFile();
+    }
+
+    @Test
+    void decisionsSurviveARestartWithoutMaterializing() throws IOException {
+        // Delivered in an earlier session, then unselected in this one
+        Files.write(Path.of(selected, names.get(9)), new byte[16]);
+        restart();
+        assertTrue(membershipIndex.contains(selected, names.get(9)));
+
+        journal.record(selected, names.get(1), source(names.get(1)), "selected", true);
+        journal.record(selected, names.get(2), source(names.get(2)), "selected", true);
+        journal.record(selected, names.get(3), source(names.get(3)), "selected", true);
+        journal.record(selected, names.get(2), null, "selected", false);
+        journal.record(haldi, names.get(3), source(names.get(3)), "Haldi", true);
+        journal.record(selected, names.get(9), null, "selected", false);
+        assertEquals(5, journal.pendingCount());
+
+        restart();
+
+        // Nothing reached the folders; the index shows the decisions anyway
+        assertFalse(Files.exists(Path.of(selected, names.get(1))));
+        assertTrue(Files.exists(Path.of(selected, names.get(9))));
+        assertTrue(membershipIndex.contains(selected, names.get(1)));
+        assertFalse(membershipIndex.contains(selected, names.get(2)));
+        assertTrue(membershipIndex.contains(selected, names.get(3)));
+        assertFalse(membershipIndex.contains(selected, names.get(9)));
+        assertTrue(membershipIndex.contains(haldi, names.get(3)));
+        assertEquals(2, membershipIndex.count(selected));
+        assertEquals(1, membershipIndex.count(haldi));
+        // Net decisions per target, including the removals still to apply
+        assertEquals(5, journal.pendingCount());
+        // Replay compacts the journal down to those decisions
+        assertEquals(5, Files.readAllLines(journalFile, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void concurrentDecisionsAreAllReplayed() throws Exception {
+        ExecutorService reviewers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> recorded = new ArrayList<>();
+            for (String name : names) {
+                recorded.add(reviewers.submit(() -> journal.record(selected, name, source(name), "selected", true)));
+            }
+            for (Future<?> future : recorded) {
+                future.get();
+            }
+        } finally {
+            reviewers.shutdown();
+        }
+        for (int i = 0; i < PHOTO_COUNT; i += 2) {
+            journal.record(selected, names.get(i), null, "selected", false);
+        }
+
+        restart();
+
+        assertEquals(PHOTO_COUNT, journal.pendingCount());
+        assertEquals(PHOTO_COUNT / 2, membershipIndex.count(selected));
+        for (int i = 0; i < PHOTO_COUNT; i++) {
+            assertEquals(i % 2 == 1, membershipIndex.contains(selected, names.get(i)), names.get(i));
+        }
+    }
+
+    @Test
+    void tornLastRecordIsIgnored() throws IOException {
+        journal.record(selected, names.get(1), source(names.get(1)), "selected", true);
+        journal.shutdown();
+        // A crash in the middle of an append
+        Files.writeString(journalFile, "A\t" + selected + "\t" + names.get(2), StandardOpenOption.APPEND);
+        membershipIndex.close();
+        start();
+
+        assertEquals(1, journal.pendingCount());
+        assertTrue(membershipIndex.contains(selected, names.get(1)));
+        assertFalse(membershipIndex.contains(selected, names.get(2)));
+    }
+}
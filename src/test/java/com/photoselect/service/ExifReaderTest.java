@@ -0,0 +1,158 @@
+package com.photoselect.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExifReaderTest {
+
+    private static final long CAPTURED = LocalDateTime.of(2024, 2, 10, 18, 30, 5).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void readsCameraCaptureTimeOrientationAndSize() throws IOException {
+        PhotoMetadata metadata = read(new Exif().jpeg());
+
+        assertEquals("Canon EOS R5", metadata.getCamera());
+        assertTrue(metadata.hasCaptureTime());
+        assertEquals(CAPTURED, metadata.getCaptureTime());
+        assertEquals(6, metadata.getOrientation());
+        assertEquals(6000, metadata.getWidth());
+        assertEquals(4000, metadata.getHeight());
+    }
+
+    @Test
+    void asciiCountNearIntLimitIsIgnored() throws IOException {
+        Exif exif = new Exif();
+        // offset + count overflows to a negative number for this count
+        exif.makeCount = 0x7FFFFFF0;
+
+        PhotoMetadata metadata = read(exif.jpeg());
+
+        assertEquals("Canon EOS R5", metadata.getCamera());
+        assertEquals(CAPTURED, metadata.getCaptureTime());
+    }
+
+    @Test
+    void offsetsOutsideTheSegmentAreIgnored() throws IOException {
+        Exif exif = new Exif();
+        exif.modelOffset = 0xFFFFFFFC;
+        exif.exifIfdOffset = 0x7FFFFFFF;
+
+        PhotoMetadata metadata = read(exif.jpeg());
+
+        assertEquals("Canon", metadata.getCamera());
+        assertFalse(metadata.hasCaptureTime());
+        assertEquals(6, metadata.getOrientation());
+        assertEquals(6000, metadata.getWidth());
+    }
+
+    @Test
+    void truncatedFilesNeverThrow() throws IOException {
+        byte[] jpeg = new Exif().jpeg();
+        for (int length = 0; length < jpeg.length; length++) {
+            PhotoMetadata metadata = read(Arrays.copyOf(jpeg, length));
+            assertNotNull(metadata, "cut at " + length);
+            assertEquals(length, metadata.getSize());
+        }
+        // Cut just before the frame header: everything from EXIF, no pixel size
+        PhotoMetadata metadata = read(Arrays.copyOf(jpeg, jpeg.length - 21));
+        assertEquals("Canon EOS R5", metadata.getCamera());
+        assertEquals(0, metadata.getHeight());
+    }
+
+    @Test
+    void segmentLengthPastTheEndOfFileIsIgnored() throws IOException {
+        Exif exif = new Exif();
+        exif.segmentLength = 0xFFFF;
+
+        PhotoMetadata metadata = read(exif.jpeg());
+
+        assertEquals("Canon EOS R5", metadata.getCamera());
+        assertEquals(0, metadata.getWidth());
+    }
+
+    @Test
+    void notAnImage() throws IOException {
+        PhotoMetadata metadata = read("not a photo at all".getBytes(StandardCharsets.US_ASCII));
+
+        assertNull(metadata.getCamera());
+        assertFalse(metadata.hasCaptureTime());
+        assertEquals(1, metadata.getOrientation());
+        assertEquals(1, ExifReader.readOrientation(tmp.resolve("photo.jpg")));
+    }
+
+    @Test
+    void pngYieldsItsDimensions() throws IOException {
+        ByteBuffer png = ByteBuffer.allocate(33);
+        png.putInt(0x89504E47).putInt(0x0D0A1A0A).putInt(13).putInt(0x49484452).putInt(1200).putInt(800);
+
+        PhotoMetadata metadata = read(png.array());
+
+        assertEquals(1200, metadata.getWidth());
+        assertEquals(800, metadata.getHeight());
+    }
+
+    private PhotoMetadata read(byte[] content) throws IOException {
+        Path file = Files.write(tmp.resolve("photo.jpg"), content);
+        return ExifReader.read(file, 0, content.length);
+    }
+
+    // A big-endian EXIF header as cameras write it: IFD0 (make, model, orientation, Exif IFD
+    // pointer), the Exif IFD (capture time), then the values they point to. Fields can be corrupted.
+    private static final class Exif {
+        private static final byte[] MAKE = "Canon\0".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] MODEL = "Canon EOS R5\0".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] TIME = "2024:02:10 18:30:05\0".getBytes(StandardCharsets.US_ASCII);
+        private static final int IFD0 = 8;
+        private static final int EXIF_IFD = IFD0 + 2 + 4 * 12 + 4;
+        private static final int DATA = EXIF_IFD + 2 + 12 + 4;
+
+        int makeCount = MAKE.length;
+        int modelOffset = DATA + MAKE.length;
+        int exifIfdOffset = EXIF_IFD;
+        int segmentLength = -1;
+
+        byte[] jpeg() {
+            ByteBuffer tiff = ByteBuffer.allocate(DATA + MAKE.length + MODEL.length + TIME.length);
+            tiff.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(IFD0);
+            tiff.putShort((short) 4);
+            entry(tiff, 0x010F, 2, makeCount, DATA);
+            entry(tiff, 0x0110, 2, MODEL.length, modelOffset);
+            tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) 6).putShort((short) 0);
+            entry(tiff, 0x8769, 4, 1, exifIfdOffset);
+            tiff.putInt(0);
+            tiff.putShort((short) 1);
+            entry(tiff, 0x9003, 2, TIME.length, DATA + MAKE.length + MODEL.length);
+            tiff.putInt(0);
+            tiff.put(MAKE).put(MODEL).put(TIME);
+
+            int app1Length = 2 + 6 + tiff.capacity();
+            ByteBuffer jpeg = ByteBuffer.allocate(2 + 2 + app1Length + 2 + 17 + 2);
+            jpeg.putShort((short) 0xFFD8);
+            jpeg.putShort((short) 0xFFE1).putShort((short) (segmentLength > 0 ? segmentLength : app1Length));
+            jpeg.put(new byte[]{'E', 'x', 'i', 'f', 0, 0}).put(tiff.array());
+            // Baseline frame header: precision, height, width, then three components
+            jpeg.putShort((short) 0xFFC0).putShort((short) 17).put((byte) 8).putShort((short) 4000).putShort((short) 6000);
+            jpeg.put((byte) 3).put(new byte[9]);
+            jpeg.putShort((short) 0xFFD9);
+            return jpeg.array();
+        }
+
+        private static void entry(ByteBuffer tiff, int tag, int type, int count, int value) {
+            tiff.putShort((short) tag).putShort((short) type).putInt(count).putInt(value);
+        }
+    }
+}
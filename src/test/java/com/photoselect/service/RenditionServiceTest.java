@@ -0,0 +1,105 @@
+package com.photoselect.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenditionServiceTest {
+
+    @TempDir
+    Path tmp;
+
+    private RenditionService renditionService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        renditionService = new RenditionService();
+        ReflectionTestUtils.setField(renditionService, "cacheDir", tmp.resolve("cache").toString());
+        ReflectionTestUtils.setField(renditionService, "cacheMaxBytes", 64L * 1024 * 1024);
+        ReflectionTestUtils.setField(renditionService, "threads", 1);
+        ReflectionTestUtils.setField(renditionService, "queueSize", 4);
+        ReflectionTestUtils.setField(renditionService, "quality", 0.9f);
+        ReflectionTestUtils.setField(renditionService, "widths", new int[]{320, 960});
+        ReflectionTestUtils.setField(renditionService, "thumbnailWidth", 320);
+        renditionService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        renditionService.shutdown();
+    }
+
+    @Test
+    void portraitStoredSidewaysIsRenderedUpright() throws IOException {
+        // Stored 800x400 with the top of the scene on the left (red) and the bottom on the right
+        // (blue); orientation 6 says "rotate 90 degrees clockwise to display", i.e. 400x800
+        File source = writeJpeg(tmp.resolve("portrait.jpg"), 6);
+
+        File rendition = renditionService.getRendition(source, 320);
+
+        assertNotNull(rendition);
+        BufferedImage image = ImageIO.read(rendition);
+        assertEquals(320, image.getWidth());
+        assertEquals(640, image.getHeight());
+        assertTrue(isRed(image.getRGB(160, 100)), "top of the rendition should be the red half");
+        assertTrue(isBlue(image.getRGB(160, 540)), "bottom of the rendition should be the blue half");
+    }
+
+    @Test
+    void uprightPhotoIsScaledAsStored() throws IOException {
+        File source = writeJpeg(tmp.resolve("landscape.jpg"), 1);
+
+        BufferedImage image = ImageIO.read(renditionService.getRendition(source, 320));
+
+        assertEquals(320, image.getWidth());
+        assertEquals(160, image.getHeight());
+        assertTrue(isRed(image.getRGB(40, 80)));
+        assertTrue(isBlue(image.getRGB(280, 80)));
+    }
+
+    @Test
+    void sidewaysPhotoNarrowerThanRequestedIsServedAsIs() throws IOException {
+        // Displayed 400 wide: nothing to gain from a 960px rendition
+        File source = writeJpeg(tmp.resolve("small.jpg"), 6);
+
+        assertNull(renditionService.getRendition(source, 960));
+    }
+
+    private static File writeJpeg(Path path, int orientation) throws IOException {
+        BufferedImage image = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 400, 400);
+        g.setColor(Color.BLUE);
+        g.fillRect(400, 0, 400, 400);
+        g.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", jpeg);
+        Files.write(path, ExifReader.withOrientation(jpeg.toByteArray(), orientation));
+        return path.toFile();
+    }
+
+    private static boolean isRed(int rgb) {
+        Color c = new Color(rgb);
+        return c.getRed() > 200 && c.getBlue() < 60;
+    }
+
+    private static boolean isBlue(int rgb) {
+        Color c = new Color(rgb);
+        return c.getBlue() > 200 && c.getRed() < 60;
+    }
+}
@@ -0,0 +1,108 @@
+package com.photoselect.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewSessionsTest {
+
+    private static final int PHOTO_COUNT = 200;
+    private static final int REVIEWERS = 20;
+
+    private List<String> photos;
+    private ReviewSessions reviewSessions;
+
+    @BeforeEach
+    void setUp() {
+        photos = new ArrayList<>();
+        for (int i = 0; i < PHOTO_COUNT; i++) {
+            photos.add(String.format("IMG_%04d.jpg", i));
+        }
+        // Picks are keyed by name alone; the catalog is only needed for cursors
+        reviewSessions = new ReviewSessions(null);
+        ReflectionTestUtils.setField(reviewSessions, "idleMinutes", 60L);
+        reviewSessions.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewSessions.shutdown();
+    }
+
+    @Test
+    void concurrentPicksMergeAddWins() throws Exception {
+        List<ReviewSessions.Session> sessions = new ArrayList<>();
+        for (int r = 0; r < REVIEWERS; r++) {
+            sessions.add(reviewSessions.open("Reviewer " + r));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(REVIEWERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int r = 0; r < REVIEWERS; r++) {
+            int reviewer = r;
+            String id = sessions.get(r).getId();
+            done.add(pool.submit(() -> {
+                List<String> order = new ArrayList<>(photos);
+                Collections.shuffle(order, new Random(reviewer));
+                start.await();
+                for (String photo : order) {
+                    reviewSessions.pick(id, "selected", photo);
+                }
+                // Reviewer r drops photo p unless r < p % 20, so photos with p % 20 == 0 are dropped by everyone
+                for (int p = 0; p < photos.size(); p++) {
+                    if (reviewer >= p % REVIEWERS) {
+                        reviewSessions.release(id, "selected", photos.get(p));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : done) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Whatever the interleaving, a photo stays picked exactly when some reviewer kept it
+        for (int p = 0; p < photos.size(); p++) {
+            assertEquals(p % REVIEWERS != 0, reviewSessions.isPicked("selected", photos.get(p)), photos.get(p));
+        }
+        // Photo 19 is kept by reviewers 0-18; withdrawing one pick reports the other 18
+        List<String> others = reviewSessions.release(sessions.get(0).getId(), "selected", photos.get(REVIEWERS - 1));
+        assertEquals(REVIEWERS - 2, others.size());
+        assertFalse(others.contains("Reviewer 0"));
+        // Closing the other sessions drops their picks
+        for (int r = 1; r < REVIEWERS; r++) {
+            reviewSessions.close(sessions.get(r).getId());
+        }
+        assertFalse(reviewSessions.isPicked("selected", photos.get(REVIEWERS - 1)));
+        assertEquals(1, reviewSessions.size());
+    }
+
+    @Test
+    void unpickOnlyTakesBackTheSessionsOwnPick() {
+        String photo = photos.get(0);
+        ReviewSessions.Session first = reviewSessions.open("First");
+        ReviewSessions.Session second = reviewSessions.open("Second");
+        reviewSessions.pick(first.getId(), "selected", photo);
+        reviewSessions.pick(second.getId(), "selected", photo);
+
+        reviewSessions.unpick(second.getId(), "selected", photo);
+        // Unknown or missing sessions never had a pick to take back
+        reviewSessions.unpick("no-such-session", "selected", photo);
+        reviewSessions.unpick(null, "selected", photo);
+
+        assertTrue(reviewSessions.isPicked("selected", photo));
+        assertEquals(List.of(), reviewSessions.release(first.getId(), "selected", photo));
+        assertFalse(reviewSessions.isPicked("selected", photo));
+    }
+}